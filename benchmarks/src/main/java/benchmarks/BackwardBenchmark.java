@@ -0,0 +1,75 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import NetworkClasses.Network;
+import NetworkClasses.ParallelTrainer;
+
+/**
+ * Backward pass: Network.learnFrom for a single sample and a whole mini-batch
+ * (forward, backward and update) through ParallelTrainer
+ */
+@State(Scope.Thread)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BackwardBenchmark {
+    @Param({ Topologies.SMALL, Topologies.WIDE, Topologies.DEEP })
+    public String topology;
+
+    @Param({ "32", "256" })
+    public int batchSize;
+
+    private Network network;
+    private ParallelTrainer trainer;
+    private double[] input;
+    private double[] expected;
+    private double[][] batchInputs;
+    private double[][] batchExpected;
+
+    @Setup
+    public void setup() throws Exception {
+        network = Topologies.create(topology);
+        trainer = new ParallelTrainer(network);
+        int[] sizes = Topologies.sizes(topology);
+        input = Topologies.randomValues(sizes[0], 1);
+        expected = Topologies.expected(sizes[sizes.length - 1]);
+        batchInputs = new double[batchSize][];
+        batchExpected = new double[batchSize][];
+        for (int i = 0; i < batchSize; i++) {
+            batchInputs[i] = Topologies.randomValues(sizes[0], i);
+            batchExpected[i] = expected;
+        }
+        network.pulseWithInput(input);
+    }
+
+    @TearDown
+    public void tearDown() {
+        trainer.close();
+    }
+
+    @Benchmark
+    public void learnFrom() {
+        network.learnFrom(expected);
+    }
+
+    @Benchmark
+    public void trainBatch() {
+        trainer.trainBatch(batchInputs, batchExpected);
+    }
+}
@@ -0,0 +1,23 @@
+package benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks with the GC profiler attached so that allocation rates are
+ * reported next to throughput and latency. The forked JVMs get the Vector API
+ * module so the SIMD kernels are used; add "-jvmArgsAppend -Dnn.vector=scalar" to
+ * measure the plain loops instead. Accepts the usual JMH command line options,
+ * for example a benchmark name regex or "-p topology=81-57-4"
+ */
+public class BenchmarkRunner {
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .addProfiler(GCProfiler.class)
+                .jvmArgsPrepend("--add-modules=jdk.incubator.vector")
+                .build()).run();
+    }
+}
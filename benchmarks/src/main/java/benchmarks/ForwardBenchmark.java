@@ -0,0 +1,95 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import NetworkClasses.CompiledNetwork;
+import NetworkClasses.Network;
+import NetworkClasses.Precision;
+import NetworkClasses.Predictor;
+
+/**
+ * Forward pass: one batch of inputs pulsed sample by sample through
+ * Network.pulseWithInput, through Network.predictBatch, through a
+ * CompiledNetwork and through a generated Predictor, with double and single
+ * precision weights
+ */
+@State(Scope.Thread)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ForwardBenchmark {
+    @Param({ Topologies.SMALL, Topologies.WIDE, Topologies.DEEP })
+    public String topology;
+
+    @Param({ "1", "32", "256" })
+    public int batchSize;
+
+    @Param({ "DOUBLE", "FLOAT" })
+    public Precision precision;
+
+    private Network network;
+    private CompiledNetwork compiled;
+    private CompiledNetwork.Workspace workspace;
+    private Predictor generated;
+    private double[] output;
+    private double[][] inputs;
+    private double[] flatInputs;
+
+    @Setup
+    public void setup() throws Exception {
+        network = Topologies.create(topology, precision);
+        compiled = network.compile();
+        workspace = compiled.newWorkspace();
+        generated = network.compilePredictor();
+        output = new double[generated.getOutputSize()];
+        int inputSize = Topologies.sizes(topology)[0];
+        flatInputs = Topologies.randomValues(batchSize * inputSize, 1);
+        inputs = new double[batchSize][inputSize];
+        for (int i = 0; i < batchSize; i++) {
+            System.arraycopy(flatInputs, i * inputSize, inputs[i], 0, inputSize);
+        }
+    }
+
+    @Benchmark
+    public void pulseWithInput(Blackhole bh) {
+        for (double[] input : inputs) {
+            network.pulseWithInput(input);
+        }
+        bh.consume(network);
+    }
+
+    @Benchmark
+    public double[] predictBatch() {
+        return network.predictBatch(flatInputs, batchSize);
+    }
+
+    @Benchmark
+    public void compiledPredict(Blackhole bh) {
+        for (double[] input : inputs) {
+            bh.consume(compiled.predict(input, workspace));
+        }
+    }
+
+    @Benchmark
+    public void generatedPredict(Blackhole bh) {
+        for (double[] input : inputs) {
+            generated.predict(input, output);
+            bh.consume(output);
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package benchmarks;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import NetworkClasses.BinaryNetworkFile;
+import NetworkClasses.Network;
+import Other.Util;
+
+/**
+ * Saving and reading networks in the text and the binary format. The saves go
+ * through the writers underneath Network.saveToFile and saveToBinaryFile, which
+ * also print a line to the console that should not be timed
+ */
+@State(Scope.Thread)
+@BenchmarkMode({ Mode.AverageTime, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class IOBenchmark {
+    @Param({ Topologies.SMALL, Topologies.WIDE })
+    public String topology;
+
+    private Network network;
+    private File textFile;
+    private File binaryFile;
+
+    @Setup
+    public void setup() throws Exception {
+        network = Topologies.create(topology);
+        textFile = File.createTempFile("network", ".txt");
+        binaryFile = File.createTempFile("network", ".jnnb");
+        network.saveToFile(textFile);
+        network.saveToBinaryFile(binaryFile);
+    }
+
+    @TearDown
+    public void tearDown() {
+        textFile.delete();
+        binaryFile.delete();
+    }
+
+    @Benchmark
+    public void saveToFile() throws IOException {
+        try (Writer w = new FileWriter(textFile)) {
+            network.saveToFile(w);
+        }
+    }
+
+    @Benchmark
+    public Network readFromFile() {
+        return Util.readFromFile(textFile);
+    }
+
+    @Benchmark
+    public void saveToBinaryFile() throws IOException {
+        BinaryNetworkFile.write(network, binaryFile);
+    }
+
+    @Benchmark
+    public Network readFromBinaryFile() {
+        return Util.readFromBinaryFile(binaryFile);
+    }
+}
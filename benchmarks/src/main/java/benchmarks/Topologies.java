@@ -0,0 +1,74 @@
+package benchmarks;
+
+import Exceptions.TooFewLayersException;
+import NetworkClasses.Network;
+import NetworkClasses.Precision;
+import Other.FunctionClasses.Activation.ActivationOptions;
+import Other.FunctionClasses.Cost.CostOptions;
+
+/**
+ * The network shapes the benchmarks are run against. Topologies are written as
+ * the layer sizes joined by dashes so they can be used as JMH parameters
+ */
+final class Topologies {
+    /** The network trained by Main */
+    static final String SMALL = "81-57-4";
+    /** A network with wide, memory bound layers */
+    static final String WIDE = "784-2048-2048-10";
+    /** A network with many narrow layers */
+    static final String DEEP = "81-128-128-128-128-128-128-128-128-4";
+
+    private Topologies() {
+    }
+
+    static int[] sizes(String topology) {
+        String[] parts = topology.split("-");
+        int[] ret_val = new int[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            ret_val[i] = Integer.parseInt(parts[i]);
+        }
+        return ret_val;
+    }
+
+    /**
+     * Creates a network with the given topology, sigmoid hidden layers like Main
+     * and fixed random weights
+     */
+    static Network create(String topology) throws TooFewLayersException {
+        return create(topology, Precision.DOUBLE);
+    }
+
+    /**
+     * Creates a network with the given topology and weight precision, sigmoid
+     * hidden layers like Main and fixed random weights
+     */
+    static Network create(String topology, Precision precision) throws TooFewLayersException {
+        int[] sizes = sizes(topology);
+        ActivationOptions[] afs = new ActivationOptions[sizes.length];
+        for (int i = 0; i < afs.length; i++) {
+            afs[i] = i < afs.length - 1 ? ActivationOptions.SIGMOID : ActivationOptions.LEAKY_RE_LU;
+        }
+        return new Network(sizes, afs, CostOptions.QUADRATIC, precision, 42);
+    }
+
+    /**
+     * Fills an array with values between 0 and 1 that are the same on every run
+     */
+    static double[] randomValues(int length, long seed) {
+        java.util.Random r = new java.util.Random(seed);
+        double[] ret_val = new double[length];
+        for (int i = 0; i < length; i++) {
+            ret_val[i] = r.nextDouble();
+        }
+        return ret_val;
+    }
+
+    /**
+     * A one-hot expected output for a network with the given output size
+     */
+    static double[] expected(int outputSize) {
+        double[] ret_val = new double[outputSize];
+        ret_val[0] = 1;
+        return ret_val;
+    }
+}
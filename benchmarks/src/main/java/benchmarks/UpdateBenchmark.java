@@ -0,0 +1,57 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import NetworkClasses.Network;
+import Other.FunctionClasses.Optimizer.Optimizer;
+import Other.FunctionClasses.Optimizer.OptimizerOptions;
+
+/**
+ * Weight update: Network.updateLayers applying the changes of one learned sample
+ * with each optimizer. The sample is learned inside the measured method, since
+ * setting it up per invocation would cost more than the update itself to time;
+ * subtract BackwardBenchmark.learnFrom for the cost of the update alone
+ */
+@State(Scope.Thread)
+@BenchmarkMode({ Mode.AverageTime, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UpdateBenchmark {
+    @Param({ Topologies.SMALL, Topologies.WIDE, Topologies.DEEP })
+    public String topology;
+
+    @Param({ "SGD", "MOMENTUM", "RMS_PROP", "ADAM" })
+    public OptimizerOptions optimizer;
+
+    private Network network;
+    private double[] expected;
+
+    @Setup
+    public void setup() throws Exception {
+        network = Topologies.create(topology);
+        network.setOptimizer(new Optimizer(optimizer));
+        int[] sizes = Topologies.sizes(topology);
+        expected = Topologies.expected(sizes[sizes.length - 1]);
+        network.pulseWithInput(Topologies.randomValues(sizes[0], 1));
+    }
+
+    @Benchmark
+    public void learnAndUpdate() {
+        network.learnFrom(expected);
+        network.updateLayers();
+    }
+}
@@ -0,0 +1,83 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import Other.Util;
+import Other.FunctionClasses.Activation.ActivationFunction;
+import Other.FunctionClasses.Activation.ActivationOptions;
+
+/**
+ * The vector routines in Util on square n by n matrices
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UtilBenchmark {
+    @Param({ "64", "1024", "2048" })
+    public int n;
+
+    private double[] a;
+    private double[] b;
+    private double[] matrix;
+    private double[] out;
+    private ActivationFunction af;
+
+    @Setup
+    public void setup() {
+        a = Topologies.randomValues(n, 1);
+        b = Topologies.randomValues(n, 2);
+        matrix = Topologies.randomValues(n * n, 3);
+        out = new double[n];
+        af = new ActivationFunction(ActivationOptions.SIGMOID);
+    }
+
+    @Benchmark
+    public double dotProduct() {
+        return Util.dotProduct(a, b);
+    }
+
+    @Benchmark
+    public double[] addOuterProduct() {
+        Util.addOuterProduct(matrix, a, b);
+        return matrix;
+    }
+
+    @Benchmark
+    public double[] calculatedCda() {
+        Util.calculatedCda(matrix, n, b, out);
+        return out;
+    }
+
+    @Benchmark
+    public double[] calculatedCdz() {
+        Util.calculatedCdz(a, b, af, out);
+        return out;
+    }
+
+    @Benchmark
+    public double[] calculatedCdzCached() {
+        Util.calculatedCdz(a, b, b, af, out);
+        return out;
+    }
+
+    @Benchmark
+    public double[] forwardLayer() {
+        Util.forwardLayer(a, matrix, n, n, b, af, out);
+        return out;
+    }
+}
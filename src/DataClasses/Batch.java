@@ -0,0 +1,84 @@
+package DataClasses;
+
+/**
+ * A mini-batch of training examples stored flat: the inputs of example k start
+ * at index k * getInputSize() of getInputs() and its expected outputs at index k
+ * * getOutputSize() of getExpected(). Batches are reused by the BatchIterator
+ * that produced them, so their contents are only valid until the iterator's
+ * next batch is requested
+ */
+public final class Batch {
+    private final double[] inputs;
+    private final double[] expected;
+    private final int inputSize;
+    private final int outputSize;
+    private final int capacity;
+    private int size;
+
+    /**
+     * @param capacity   the maximum amount of examples in this batch
+     * @param inputSize  the amount of input values per example
+     * @param outputSize the amount of expected output values per example
+     */
+    public Batch(int capacity, int inputSize, int outputSize) {
+        this.inputs = new double[capacity * inputSize];
+        this.expected = new double[capacity * outputSize];
+        this.inputSize = inputSize;
+        this.outputSize = outputSize;
+        this.capacity = capacity;
+    }
+
+    /**
+     * Fills this batch with the next examples of a source
+     * 
+     * @param source the source to read from
+     * @return the amount of examples read, less than the capacity only if the
+     *         source ran out
+     */
+    public int fill(DataSource source) {
+        return fill(source, capacity);
+    }
+
+    /**
+     * Fills this batch with at most "max" of the next examples of a source
+     * 
+     * @param source the source to read from
+     * @param max    the largest amount of examples to read
+     * @return the amount of examples read
+     */
+    public int fill(DataSource source, int max) {
+        int limit = Math.min(capacity, max);
+        size = 0;
+        while (size < limit && source.next(inputs, size * inputSize, expected, size * outputSize)) {
+            size++;
+        }
+        return size;
+    }
+
+    public double[] getInputs() {
+        return inputs;
+    }
+
+    public double[] getExpected() {
+        return expected;
+    }
+
+    public int getInputSize() {
+        return inputSize;
+    }
+
+    public int getOutputSize() {
+        return outputSize;
+    }
+
+    /**
+     * @return the amount of examples currently held by this batch
+     */
+    public int size() {
+        return size;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+}
@@ -0,0 +1,123 @@
+package DataClasses;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Reads mini-batches from a DataSource on a background thread so that preparing
+ * the data overlaps with training on it. A fixed set of batches is allocated up
+ * front and passed around a ring: the background thread takes an empty batch,
+ * fills it from the source and queues it, and each batch handed out by next is
+ * given back to the background thread when next is called again. At most
+ * "prefetch" filled batches wait in the ring, so memory use does not depend on
+ * the size of the dataset.
+ * <p>
+ * For a finite source the iterator ends when the source runs out; the last
+ * batch may hold fewer examples than the batch size. A batch returned by next
+ * is only valid until the following call to next or hasNext
+ */
+public class BatchIterator implements Iterator<Batch>, AutoCloseable {
+    private static final Batch END = new Batch(0, 0, 0);
+
+    private final BlockingQueue<Batch> free;
+    private final BlockingQueue<Batch> filled;
+    private final Thread prefetcher;
+    private volatile RuntimeException failure;
+    private Batch lookahead;
+    private Batch current;
+
+    /**
+     * @param source    the source to read examples from. It must not be used by
+     *                  anything else while this iterator is open
+     * @param batchSize the amount of examples in every batch
+     * @param prefetch  the amount of batches prepared ahead of the one being used
+     */
+    public BatchIterator(DataSource source, int batchSize, int prefetch) {
+        if (batchSize < 1 || prefetch < 1) {
+            throw new IllegalArgumentException("The batch size and the amount of prefetched batches must be positive");
+        }
+        free = new ArrayBlockingQueue<>(prefetch + 1);
+        filled = new ArrayBlockingQueue<>(prefetch + 1);
+        for (int i = 0; i < prefetch + 1; i++) {
+            free.add(new Batch(batchSize, source.getInputSize(), source.getOutputSize()));
+        }
+        prefetcher = new Thread(() -> prefetch(source), "batch-prefetcher");
+        prefetcher.setDaemon(true);
+        prefetcher.start();
+    }
+
+    /**
+     * Creates an iterator that prepares two batches ahead
+     *
+     * @param source    the source to read examples from
+     * @param batchSize the amount of examples in every batch
+     */
+    public BatchIterator(DataSource source, int batchSize) {
+        this(source, batchSize, 2);
+    }
+
+    private void prefetch(DataSource source) {
+        try {
+            while (true) {
+                Batch b = free.take();
+                if (b.fill(source) == 0) {
+                    break;
+                }
+                filled.put(b);
+            }
+        } catch (InterruptedException e) {
+            return;
+        } catch (RuntimeException e) {
+            failure = e;
+        }
+        filled.offer(END);
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (lookahead == null) {
+            recycle();
+            try {
+                lookahead = filled.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for the next batch", e);
+            }
+            if (lookahead == END) {
+                filled.offer(END);
+                if (failure != null) {
+                    throw new IllegalStateException("Reading the next batch failed", failure);
+                }
+            }
+        }
+        return lookahead != END;
+    }
+
+    @Override
+    public Batch next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        current = lookahead;
+        lookahead = null;
+        return current;
+    }
+
+    private void recycle() {
+        if (current != null) {
+            free.offer(current);
+            current = null;
+        }
+    }
+
+    /**
+     * Stops the background thread. Batches returned earlier must not be used
+     * afterwards
+     */
+    @Override
+    public void close() {
+        prefetcher.interrupt();
+    }
+}
@@ -0,0 +1,40 @@
+package DataClasses;
+
+/**
+ * A source of training examples that produces one example at a time straight
+ * into caller owned arrays, so nothing has to be held in memory up front.
+ * Sources may be infinite (generated data) or finite (a dataset on disk).
+ * Implementations do not have to be thread-safe; a source is only ever read by
+ * one thread at a time
+ *
+ * @see BatchIterator
+ */
+public interface DataSource {
+    /**
+     * @return the amount of input values of every example
+     */
+    public int getInputSize();
+
+    /**
+     * @return the amount of expected output values of every example
+     */
+    public int getOutputSize();
+
+    /**
+     * Writes the next example to the given arrays
+     * 
+     * @param input          the array the inputs are written to
+     * @param inputOffset    the index in input of the first input value
+     * @param expected       the array the expected outputs are written to
+     * @param expectedOffset the index in expected of the first expected value
+     * @return false if the source has no examples left, in which case nothing is
+     *         written
+     */
+    public boolean next(double[] input, int inputOffset, double[] expected, int expectedOffset);
+
+    /**
+     * Starts the source over from its first example. Does nothing for infinite
+     * sources
+     */
+    public void reset();
+}
@@ -0,0 +1,220 @@
+package DataClasses;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads and writes datasets in a compact binary format of our own. Every example
+ * is stored as a fixed size record, so a dataset is memory-mapped and examples
+ * are read in any order without parsing. All numbers are little-endian:
+ *
+ * <pre>
+ * [MAGIC "JNND" (int)] [VERSION (int)] [# OF EXAMPLES (int)] [INPUT SIZE (int)] [OUTPUT SIZE (int)]
+ * [INPUT ENCODING (int)] [EXPECTED OUTPUT ENCODING (int)] [0 (int)]
+ * for every example:
+ *     [INPUTS] [EXPECTED OUTPUTS] [ZERO PADDING UP TO A MULTIPLE OF 4 BYTES]
+ * </pre>
+ *
+ * The encodings are the ordinals of Encoding. UNSIGNED_BYTE stores values
+ * between 0.0 and 1.0 in a single byte each (which is exact for pixels and for
+ * one-hot expected outputs), FLOAT stores any value as a 4 byte float
+ *
+ * @see MappedDataSource
+ */
+public final class DatasetFile {
+    private static final int MAGIC = 0x444E4E4A; // "JNND" read as a little-endian int
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 32;
+    private static final int CHUNK_SIZE = 1 << 16;
+
+    /**
+     * How the values of a dataset are stored
+     */
+    public enum Encoding {
+        UNSIGNED_BYTE(1), FLOAT(Float.BYTES);
+
+        private final int bytes;
+
+        private Encoding(int bytes) {
+            this.bytes = bytes;
+        }
+    }
+
+    private DatasetFile() {
+    }
+
+    /**
+     * Writes the examples of a source to a file
+     * 
+     * @param source           the source to read the examples from, from its
+     *                         current position
+     * @param maxExamples      the largest amount of examples to write. Fewer are
+     *                         written if the source runs out first
+     * @param f                the file to write to. Created if it does not exist
+     *                         and truncated if it does
+     * @param inputEncoding    how the inputs are stored
+     * @param expectedEncoding how the expected outputs are stored
+     * @return the amount of examples written
+     * @throws IOException if the file could not be written
+     */
+    public static int write(DataSource source, int maxExamples, File f, Encoding inputEncoding,
+            Encoding expectedEncoding) throws IOException {
+        int inputSize = source.getInputSize();
+        int outputSize = source.getOutputSize();
+        int recordBytes = recordBytes(inputSize, inputEncoding, outputSize, expectedEncoding);
+        double[] input = new double[inputSize];
+        double[] expected = new double[outputSize];
+        int count = 0;
+        try (FileChannel ch = FileChannel.open(f.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ch.position(HEADER_SIZE);
+            ByteBuffer chunk = ByteBuffer.allocateDirect(Math.max(CHUNK_SIZE, recordBytes))
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            while (count < maxExamples && source.next(input, 0, expected, 0)) {
+                if (chunk.remaining() < recordBytes) {
+                    flush(ch, chunk);
+                }
+                int start = chunk.position();
+                put(chunk, input, inputEncoding);
+                put(chunk, expected, expectedEncoding);
+                while (chunk.position() < start + recordBytes) {
+                    chunk.put((byte) 0);
+                }
+                count++;
+            }
+            flush(ch, chunk);
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC).putInt(VERSION).putInt(count).putInt(inputSize).putInt(outputSize);
+            header.putInt(inputEncoding.ordinal()).putInt(expectedEncoding.ordinal()).putInt(0).flip();
+            ch.position(0);
+            while (header.hasRemaining()) {
+                ch.write(header);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Writes every remaining example of a finite source to a file
+     * 
+     * @param source           the source to read the examples from
+     * @param f                the file to write to
+     * @param inputEncoding    how the inputs are stored
+     * @param expectedEncoding how the expected outputs are stored
+     * @return the amount of examples written
+     * @throws IOException if the file could not be written
+     */
+    public static int write(DataSource source, File f, Encoding inputEncoding, Encoding expectedEncoding)
+            throws IOException {
+        return write(source, Integer.MAX_VALUE, f, inputEncoding, expectedEncoding);
+    }
+
+    /**
+     * Memory-maps a dataset that was written with write
+     * 
+     * @param f the file to read
+     * @return a source reading the examples of the file
+     * @throws IOException if the file could not be read or is not a dataset file
+     */
+    public static MappedDataSource open(File f) throws IOException {
+        try (FileChannel ch = FileChannel.open(f.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            while (header.hasRemaining()) {
+                if (ch.read(header) < 0) {
+                    throw new IOException(f + " is not a dataset file");
+                }
+            }
+            header.flip();
+            if (header.getInt() != MAGIC) {
+                throw new IOException(f + " is not a dataset file");
+            }
+            int version = header.getInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported dataset file version " + version);
+            }
+            int count = header.getInt();
+            int inputSize = header.getInt();
+            int outputSize = header.getInt();
+            int inputOrdinal = header.getInt();
+            int expectedOrdinal = header.getInt();
+            if (count < 0 || inputSize < 0 || outputSize < 0 || inputOrdinal < 0
+                    || inputOrdinal >= Encoding.values().length || expectedOrdinal < 0
+                    || expectedOrdinal >= Encoding.values().length) {
+                throw new IOException(f + " has a malformed header");
+            }
+            Encoding inputEncoding = Encoding.values()[inputOrdinal];
+            Encoding expectedEncoding = Encoding.values()[expectedOrdinal];
+            int recordBytes = recordBytes(inputSize, inputEncoding, outputSize, expectedEncoding);
+            MappedSamples samples = new MappedSamples(ch, HEADER_SIZE, count, recordBytes, ByteOrder.LITTLE_ENDIAN);
+            int expectedOffset = inputSize * inputEncoding.bytes;
+            return new MappedDataSource() {
+                @Override
+                public int size() {
+                    return samples.size();
+                }
+
+                @Override
+                public int getInputSize() {
+                    return inputSize;
+                }
+
+                @Override
+                public int getOutputSize() {
+                    return outputSize;
+                }
+
+                @Override
+                public void read(int index, double[] input, int inputOffset, double[] expected, int expectedOff) {
+                    get(samples, index, 0, inputSize, inputEncoding, input, inputOffset);
+                    get(samples, index, expectedOffset, outputSize, expectedEncoding, expected, expectedOff);
+                }
+            };
+        }
+    }
+
+    private static int recordBytes(int inputSize, Encoding inputEncoding, int outputSize, Encoding expectedEncoding) {
+        long bytes = (long) inputSize * inputEncoding.bytes + (long) outputSize * expectedEncoding.bytes;
+        bytes = (bytes + 3) & ~3;
+        if (bytes > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Examples of " + bytes + " bytes are too large");
+        }
+        return (int) bytes;
+    }
+
+    private static void put(ByteBuffer buf, double[] values, Encoding encoding) {
+        if (encoding == Encoding.FLOAT) {
+            for (double v : values) {
+                buf.putFloat((float) v);
+            }
+        } else {
+            for (double v : values) {
+                if (v < 0 || v > 1) {
+                    throw new IllegalArgumentException(v + " is outside of 0.0 - 1.0 and cannot be stored as a byte");
+                }
+                buf.put((byte) Math.round(v * 255));
+            }
+        }
+    }
+
+    private static void get(MappedSamples samples, int index, int offset, int len, Encoding encoding, double[] out,
+            int outOff) {
+        if (encoding == Encoding.FLOAT) {
+            samples.readFloats(index, offset, len, out, outOff);
+        } else {
+            samples.readUnsignedBytes(index, offset, len, out, outOff);
+        }
+    }
+
+    private static void flush(FileChannel ch, ByteBuffer chunk) throws IOException {
+        chunk.flip();
+        while (chunk.hasRemaining()) {
+            ch.write(chunk);
+        }
+        chunk.clear();
+    }
+}
@@ -0,0 +1,142 @@
+package DataClasses;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads a labelled image dataset stored in the IDX format used by MNIST: one
+ * file of unsigned byte images and one file of unsigned byte labels. Both files
+ * are memory-mapped, and pixels are scaled from 0 - 255 to 0.0 - 1.0 as they are
+ * read. The expected output of an example has a 1 at the index of its label and
+ * 0 elsewhere
+ *
+ * <pre>
+ * [0 (short)] [TYPE, 0x08 FOR UNSIGNED BYTES (byte)] [# OF DIMENSIONS (byte)]
+ * [SIZE OF EVERY DIMENSION (big-endian ints)]
+ * [DATA]
+ * </pre>
+ */
+public class IdxDataSource extends MappedDataSource {
+    private static final int UNSIGNED_BYTE = 0x08;
+
+    private final MappedSamples images;
+    private final MappedSamples labels;
+    private final int inputSize;
+    private final int classes;
+
+    /**
+     * Opens an image and label file. The amount of classes is one more than the
+     * largest label
+     * 
+     * @param imageFile the IDX file holding the images
+     * @param labelFile the IDX file holding the labels
+     * @throws IOException if a file could not be read or is not a valid unsigned
+     *                     byte IDX file
+     */
+    public IdxDataSource(File imageFile, File labelFile) throws IOException {
+        this(imageFile, labelFile, 0);
+    }
+
+    /**
+     * Opens an image and label file
+     * 
+     * @param imageFile the IDX file holding the images
+     * @param labelFile the IDX file holding the labels
+     * @param classes   the amount of classes (neurons in the output layer), or 0
+     *                  to use one more than the largest label
+     * @throws IOException if a file could not be read, is not a valid unsigned
+     *                     byte IDX file or holds a label that is out of range
+     */
+    public IdxDataSource(File imageFile, File labelFile, int classes) throws IOException {
+        int[] imageDims;
+        try (FileChannel ch = FileChannel.open(imageFile.toPath(), StandardOpenOption.READ)) {
+            imageDims = readHeader(ch, imageFile);
+            int size = 1;
+            for (int i = 1; i < imageDims.length; i++) {
+                size *= imageDims[i];
+            }
+            inputSize = size;
+            images = new MappedSamples(ch, 4 + 4L * imageDims.length, imageDims[0], inputSize, ByteOrder.BIG_ENDIAN);
+        }
+        try (FileChannel ch = FileChannel.open(labelFile.toPath(), StandardOpenOption.READ)) {
+            int[] labelDims = readHeader(ch, labelFile);
+            if (labelDims.length != 1 || labelDims[0] != imageDims[0]) {
+                throw new IOException(labelFile + " does not hold one label for each of the " + imageDims[0]
+                        + " images");
+            }
+            labels = new MappedSamples(ch, 8, labelDims[0], 1, ByteOrder.BIG_ENDIAN);
+        }
+        int max = -1;
+        for (int i = 0; i < labels.size(); i++) {
+            max = Math.max(max, labels.readUnsignedByte(i, 0));
+        }
+        if (classes == 0) {
+            classes = max + 1;
+        } else if (max >= classes) {
+            throw new IOException(labelFile + " holds label " + max + " but there are only " + classes + " classes");
+        }
+        this.classes = classes;
+    }
+
+    private static int[] readHeader(FileChannel ch, File f) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(4).order(ByteOrder.BIG_ENDIAN);
+        readFully(ch, header, 0);
+        if (header.getShort(0) != 0 || header.get(3) < 1) {
+            throw new IOException(f + " is not an IDX file");
+        }
+        if (header.get(2) != UNSIGNED_BYTE) {
+            throw new IOException(f + " does not hold unsigned bytes, only unsigned byte IDX files are supported");
+        }
+        ByteBuffer dims = ByteBuffer.allocate(4 * header.get(3)).order(ByteOrder.BIG_ENDIAN);
+        readFully(ch, dims, 4);
+        int[] ret_val = new int[header.get(3)];
+        for (int i = 0; i < ret_val.length; i++) {
+            ret_val[i] = dims.getInt(4 * i);
+        }
+        return ret_val;
+    }
+
+    private static void readFully(FileChannel ch, ByteBuffer buf, long position) throws IOException {
+        while (buf.hasRemaining()) {
+            if (ch.read(buf, position + buf.position()) < 0) {
+                throw new IOException("Unexpected end of file");
+            }
+        }
+    }
+
+    @Override
+    public int size() {
+        return images.size();
+    }
+
+    @Override
+    public int getInputSize() {
+        return inputSize;
+    }
+
+    @Override
+    public int getOutputSize() {
+        return classes;
+    }
+
+    /**
+     * @param index the index of an example
+     * @return the label of the example
+     */
+    public int getLabel(int index) {
+        return labels.readUnsignedByte(index, 0);
+    }
+
+    @Override
+    public void read(int index, double[] input, int inputOffset, double[] expected, int expectedOffset) {
+        images.readUnsignedBytes(index, 0, inputSize, input, inputOffset);
+        int label = getLabel(index);
+        for (int i = 0; i < classes; i++) {
+            expected[expectedOffset + i] = i == label ? 1 : 0;
+        }
+    }
+}
@@ -0,0 +1,365 @@
+package DataClasses;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.color.ColorSpace;
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.ComponentColorModel;
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.DirectColorModel;
+import java.awt.image.Raster;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import javax.imageio.ImageIO;
+
+/**
+ * Turns images into network inputs. Every image is converted to greyscale, the
+ * average of its red, green and blue values, scaled to 0.0 - 1.0 and stored row
+ * by row (the value of pixel (x, y) at index y * width + x). Pixels are read
+ * straight from the raster's DataBuffer for the common byte and int image types
+ * instead of one getRGB call per pixel. Images of a different size are scaled to
+ * the size of the loader first.
+ * <p>
+ * Whole directories of labelled images can be decoded in parallel and cached in
+ * a DatasetFile, so that later runs map the decoded values instead of decoding
+ * the images again
+ *
+ * @see DatasetFile
+ */
+public class ImageLoader {
+    private final int width;
+    private final int height;
+    private final boolean invert;
+
+    /**
+     * @param width  the width images are scaled to
+     * @param height the height images are scaled to
+     * @param invert true to map dark pixels to 1.0 and light pixels to 0.0, for
+     *               dark shapes drawn on a light background
+     */
+    public ImageLoader(int width, int height, boolean invert) {
+        this.width = width;
+        this.height = height;
+        this.invert = invert;
+    }
+
+    /**
+     * @return the amount of values every image is turned into
+     */
+    public int getInputSize() {
+        return width * height;
+    }
+
+    /**
+     * Reads an image file and converts it
+     * 
+     * @param f the image file
+     * @return the values of the image, row by row
+     * @throws IOException if the file could not be read or is not an image
+     */
+    public double[] load(File f) throws IOException {
+        double[] ret_val = new double[getInputSize()];
+        BufferedImage image = ImageIO.read(f);
+        if (image == null) {
+            throw new IOException(f + " is not an image that can be read");
+        }
+        toTensor(image, ret_val, 0);
+        return ret_val;
+    }
+
+    /**
+     * Reads many image files and converts them in parallel
+     * 
+     * @param files   the image files
+     * @param threads the amount of threads to decode with
+     * @return the values of every image, in the same order as the files
+     * @throws IOException if a file could not be read or is not an image
+     */
+    public double[][] loadAll(List<File> files, int threads) throws IOException {
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            List<Future<double[]>> decoded = new ArrayList<>(files.size());
+            for (File f : files) {
+                decoded.add(pool.submit(() -> load(f)));
+            }
+            double[][] ret_val = new double[files.size()][];
+            for (int i = 0; i < ret_val.length; i++) {
+                ret_val[i] = get(decoded.get(i));
+            }
+            return ret_val;
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Converts an image, scaling it first if it is not the size of this loader
+     * 
+     * @param image  the image
+     * @param out    the array the values are written to
+     * @param offset the index in out of the first value
+     */
+    public void toTensor(BufferedImage image, double[] out, int offset) {
+        if (image.getWidth() != width || image.getHeight() != height) {
+            BufferedImage scaled = new BufferedImage(width, height, BufferedImage.TYPE_3BYTE_BGR);
+            Graphics2D g = scaled.createGraphics();
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.drawImage(image, 0, 0, width, height, null);
+            g.dispose();
+            image = scaled;
+        }
+        Raster raster = image.getRaster();
+        ColorModel cm = image.getColorModel();
+        DataBuffer buffer = raster.getDataBuffer();
+        if (buffer instanceof DataBufferByte && raster.getSampleModel() instanceof ComponentSampleModel
+                && cm instanceof ComponentColorModel && cm.getComponentSize(0) == 8 && isGreyOrRgb(cm)) {
+            readBytes(raster, ((DataBufferByte) buffer).getData(), cm.getNumColorComponents(), out, offset);
+        } else if (buffer instanceof DataBufferInt && raster.getSampleModel() instanceof SinglePixelPackedSampleModel
+                && cm instanceof DirectColorModel && isGreyOrRgb(cm)) {
+            readInts(raster, ((DataBufferInt) buffer).getData(), out, offset);
+        } else {
+            int[] argb = image.getRGB(0, 0, width, height, null, 0, width);
+            for (int i = 0; i < argb.length; i++) {
+                int rgb = argb[i];
+                out[offset + i] = normalize((((rgb >> 16) & 0xFF) + ((rgb >> 8) & 0xFF) + (rgb & 0xFF)) / 3);
+            }
+        }
+    }
+
+    private static boolean isGreyOrRgb(ColorModel cm) {
+        int type = cm.getColorSpace().getType();
+        return (type == ColorSpace.TYPE_RGB && cm.getNumColorComponents() == 3)
+                || (type == ColorSpace.TYPE_GRAY && cm.getNumColorComponents() == 1);
+    }
+
+    private double normalize(int grey) {
+        return (invert ? 255 - grey : grey) / 255.0;
+    }
+
+    private void readBytes(Raster raster, byte[] data, int colors, double[] out, int offset) {
+        ComponentSampleModel sm = (ComponentSampleModel) raster.getSampleModel();
+        int pixelStride = sm.getPixelStride();
+        int scanlineStride = sm.getScanlineStride();
+        int[] bandOffsets = sm.getBandOffsets();
+        int[] bankIndices = sm.getBankIndices();
+        for (int b = 1; b < colors; b++) {
+            if (bankIndices[b] != bankIndices[0]) {
+                throw new IllegalArgumentException("Images with more than one bank are not supported");
+            }
+        }
+        int base = raster.getDataBuffer().getOffsets()[bankIndices[0]] - raster.getSampleModelTranslateY()
+                * scanlineStride - raster.getSampleModelTranslateX() * pixelStride;
+        for (int y = 0; y < height; y++) {
+            int row = base + y * scanlineStride;
+            int outRow = offset + y * width;
+            for (int x = 0; x < width; x++) {
+                int p = row + x * pixelStride;
+                int grey;
+                if (colors == 1) {
+                    grey = data[p + bandOffsets[0]] & 0xFF;
+                } else {
+                    grey = ((data[p + bandOffsets[0]] & 0xFF) + (data[p + bandOffsets[1]] & 0xFF)
+                            + (data[p + bandOffsets[2]] & 0xFF)) / 3;
+                }
+                out[outRow + x] = normalize(grey);
+            }
+        }
+    }
+
+    private void readInts(Raster raster, int[] data, double[] out, int offset) {
+        SinglePixelPackedSampleModel sm = (SinglePixelPackedSampleModel) raster.getSampleModel();
+        int scanlineStride = sm.getScanlineStride();
+        int[] masks = sm.getBitMasks();
+        int[] shifts = sm.getBitOffsets();
+        int colors = masks.length >= 3 ? 3 : 1;
+        int base = raster.getDataBuffer().getOffset() - raster.getSampleModelTranslateY() * scanlineStride
+                - raster.getSampleModelTranslateX();
+        for (int y = 0; y < height; y++) {
+            int row = base + y * scanlineStride;
+            int outRow = offset + y * width;
+            for (int x = 0; x < width; x++) {
+                int pixel = data[row + x];
+                int grey;
+                if (colors == 1) {
+                    grey = (pixel & masks[0]) >>> shifts[0];
+                } else {
+                    grey = (((pixel & masks[0]) >>> shifts[0]) + ((pixel & masks[1]) >>> shifts[1])
+                            + ((pixel & masks[2]) >>> shifts[2])) / 3;
+                }
+                out[outRow + x] = normalize(grey);
+            }
+        }
+    }
+
+    /**
+     * Loads a directory of labelled images. Every subdirectory holds the images
+     * of one class, and the classes are numbered in the alphabetical order of the
+     * subdirectories. The images are decoded in parallel and written to a
+     * DatasetFile, which is then memory-mapped. If the cache file already exists
+     * and is newer than every image and subdirectory, it is used as it is and
+     * nothing is decoded
+     * 
+     * @param directory the directory holding one subdirectory per class
+     * @param cache     the file the decoded images are cached in, or null to use
+     *                  a temporary file that is deleted when the JVM exits
+     * @param threads   the amount of threads to decode with
+     * @return a source reading the decoded images, in alphabetical order per
+     *         class, with one-hot expected outputs
+     * @throws IOException if the directory, an image or the cache could not be
+     *                     read or written
+     */
+    public MappedDataSource loadDirectory(File directory, File cache, int threads) throws IOException {
+        File[] classDirs = directory.listFiles(File::isDirectory);
+        if (classDirs == null) {
+            throw new IOException(directory + " is not a directory");
+        }
+        Arrays.sort(classDirs);
+        Set<String> suffixes = new HashSet<>();
+        for (String s : ImageIO.getReaderFileSuffixes()) {
+            suffixes.add(s.toLowerCase(Locale.ROOT));
+        }
+        List<File> files = new ArrayList<>();
+        List<Integer> labels = new ArrayList<>();
+        long newest = directory.lastModified();
+        for (int c = 0; c < classDirs.length; c++) {
+            newest = Math.max(newest, classDirs[c].lastModified());
+            File[] images = classDirs[c].listFiles(f -> f.isFile() && suffixes.contains(suffixOf(f)));
+            Arrays.sort(images);
+            for (File f : images) {
+                files.add(f);
+                labels.add(c);
+                newest = Math.max(newest, f.lastModified());
+            }
+        }
+
+        if (cache != null && cache.isFile() && cache.lastModified() >= newest) {
+            MappedDataSource cached = DatasetFile.open(cache);
+            if (cached.size() == files.size() && cached.getInputSize() == getInputSize()
+                    && cached.getOutputSize() == classDirs.length) {
+                return cached;
+            }
+        }
+        File target = cache;
+        if (target == null) {
+            target = File.createTempFile("images", ".jnnd");
+            target.deleteOnExit();
+        }
+        File tmp = new File(target.getPath() + ".tmp");
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            DatasetFile.write(new DecodingSource(files, labels, classDirs.length, pool, 4 * threads), tmp,
+                    DatasetFile.Encoding.UNSIGNED_BYTE, DatasetFile.Encoding.UNSIGNED_BYTE);
+        } catch (UncheckedIOException e) {
+            tmp.delete();
+            throw e.getCause();
+        } finally {
+            pool.shutdownNow();
+        }
+        try {
+            Files.move(tmp.toPath(), target.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tmp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+        return DatasetFile.open(target);
+    }
+
+    private static String suffixOf(File f) {
+        String name = f.getName();
+        int dot = name.lastIndexOf('.');
+        return dot < 0 ? "" : name.substring(dot + 1).toLowerCase(Locale.ROOT);
+    }
+
+    private static double[] get(Future<double[]> f) throws IOException {
+        try {
+            return f.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while decoding images", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException("Decoding an image failed", e.getCause());
+        }
+    }
+
+    /**
+     * Hands out images in order while keeping a window of the following images
+     * decoding on a pool
+     */
+    private class DecodingSource implements DataSource {
+        private final List<File> files;
+        private final List<Integer> labels;
+        private final int classes;
+        private final ForkJoinPool pool;
+        private final int ahead;
+        private final ArrayDeque<Future<double[]>> window = new ArrayDeque<>();
+        private int submitted;
+        private int read;
+
+        private DecodingSource(List<File> files, List<Integer> labels, int classes, ForkJoinPool pool, int ahead) {
+            this.files = files;
+            this.labels = labels;
+            this.classes = classes;
+            this.pool = pool;
+            this.ahead = ahead;
+        }
+
+        @Override
+        public int getInputSize() {
+            return ImageLoader.this.getInputSize();
+        }
+
+        @Override
+        public int getOutputSize() {
+            return classes;
+        }
+
+        @Override
+        public boolean next(double[] input, int inputOffset, double[] expected, int expectedOffset) {
+            while (submitted < files.size() && window.size() < ahead) {
+                File f = files.get(submitted++);
+                window.add(pool.submit(() -> load(f)));
+            }
+            if (window.isEmpty()) {
+                return false;
+            }
+            double[] image;
+            try {
+                image = get(window.poll());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            System.arraycopy(image, 0, input, inputOffset, image.length);
+            int label = labels.get(read++);
+            for (int i = 0; i < classes; i++) {
+                expected[expectedOffset + i] = i == label ? 1 : 0;
+            }
+            return true;
+        }
+
+        @Override
+        public void reset() {
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package DataClasses;
+
+import java.util.Random;
+
+/**
+ * A finite DataSource whose examples live in memory-mapped files and can be
+ * read in any order. Only the examples that are read are ever copied, straight
+ * from the page cache into the caller's arrays, so datasets far larger than the
+ * heap can be trained on. Examples are read in file order unless shuffling is
+ * turned on, in which case every pass (every reset) uses a new random order
+ */
+public abstract class MappedDataSource implements DataSource {
+    private int[] order;
+    private Random shuffler;
+    private int cursor;
+
+    /**
+     * @return the amount of examples in this source
+     */
+    public abstract int size();
+
+    /**
+     * Writes a specific example to the given arrays. Unlike next, this may be
+     * called from any number of threads at once
+     * 
+     * @param index          the index of the example, between 0 and size() - 1
+     * @param input          the array the inputs are written to
+     * @param inputOffset    the index in input of the first input value
+     * @param expected       the array the expected outputs are written to
+     * @param expectedOffset the index in expected of the first expected value
+     */
+    public abstract void read(int index, double[] input, int inputOffset, double[] expected, int expectedOffset);
+
+    /**
+     * Turns on shuffling. The current pass is restarted in a new random order
+     * 
+     * @param r the source of the random orders
+     */
+    public void setShuffle(Random r) {
+        shuffler = r;
+        order = new int[size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        reset();
+    }
+
+    @Override
+    public boolean next(double[] input, int inputOffset, double[] expected, int expectedOffset) {
+        if (cursor >= size()) {
+            return false;
+        }
+        int index = order != null ? order[cursor] : cursor;
+        cursor++;
+        read(index, input, inputOffset, expected, expectedOffset);
+        return true;
+    }
+
+    @Override
+    public void reset() {
+        cursor = 0;
+        if (shuffler != null) {
+            for (int i = order.length - 1; i > 0; i--) {
+                int j = shuffler.nextInt(i + 1);
+                int tmp = order[i];
+                order[i] = order[j];
+                order[j] = tmp;
+            }
+        }
+    }
+
+    /**
+     * Returns a view of a contiguous range of the examples in this source, read
+     * in file order. Useful to split a dataset into training and validation
+     * examples without copying it. The view shares the mapped files with this
+     * source but has its own position
+     * 
+     * @param from the index of the first example of the range
+     * @param to   the index after the last example of the range
+     * @return a source reading only the given range
+     */
+    public MappedDataSource range(int from, int to) {
+        if (from < 0 || to > size() || from > to) {
+            throw new IndexOutOfBoundsException("Range " + from + " to " + to + " of " + size() + " examples");
+        }
+        MappedDataSource parent = this;
+        return new MappedDataSource() {
+            @Override
+            public int size() {
+                return to - from;
+            }
+
+            @Override
+            public void read(int index, double[] input, int inputOffset, double[] expected, int expectedOffset) {
+                parent.read(from + index, input, inputOffset, expected, expectedOffset);
+            }
+
+            @Override
+            public int getInputSize() {
+                return parent.getInputSize();
+            }
+
+            @Override
+            public int getOutputSize() {
+                return parent.getOutputSize();
+            }
+        };
+    }
+}
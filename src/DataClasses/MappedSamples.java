@@ -0,0 +1,93 @@
+package DataClasses;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Fixed size records stored back to back in a file, memory-mapped in as many
+ * segments as needed so that files larger than 2 GB can be read. A record
+ * never crosses a segment boundary
+ */
+final class MappedSamples {
+    private final MappedByteBuffer[] segments;
+    private final int recordBytes;
+    private final int recordsPerSegment;
+    private final int count;
+
+    /**
+     * @param ch          the file to map. It may be closed once this is created
+     * @param offset      the position in the file of the first record
+     * @param count       the amount of records
+     * @param recordBytes the size of every record in bytes
+     * @param order       the byte order of multi-byte values in the records
+     * @throws IOException if the file is too short or could not be mapped
+     */
+    MappedSamples(FileChannel ch, long offset, int count, int recordBytes, ByteOrder order) throws IOException {
+        if (offset + (long) count * recordBytes > ch.size()) {
+            throw new IOException("The file is too short to hold " + count + " records of " + recordBytes + " bytes");
+        }
+        this.recordBytes = recordBytes;
+        this.count = count;
+        this.recordsPerSegment = Math.max(1, Integer.MAX_VALUE / Math.max(1, recordBytes));
+        int segmentAmount = count == 0 ? 0 : (count - 1) / recordsPerSegment + 1;
+        segments = new MappedByteBuffer[segmentAmount];
+        for (int i = 0; i < segmentAmount; i++) {
+            int records = Math.min(recordsPerSegment, count - i * recordsPerSegment);
+            segments[i] = ch.map(FileChannel.MapMode.READ_ONLY, offset + (long) i * recordsPerSegment * recordBytes,
+                    (long) records * recordBytes);
+            segments[i].order(order);
+        }
+    }
+
+    int size() {
+        return count;
+    }
+
+    /**
+     * Converts unsigned bytes of a record to doubles between 0.0 and 1.0 by
+     * dividing them by 255. Only absolute reads are used, so this may be called
+     * from any number of threads at once
+     * 
+     * @param index  the index of the record
+     * @param offset the position of the first byte within the record
+     * @param len    the amount of bytes to convert
+     * @param out    the array the values are written to
+     * @param outOff the index in out of the first value
+     */
+    void readUnsignedBytes(int index, int offset, int len, double[] out, int outOff) {
+        MappedByteBuffer segment = segments[index / recordsPerSegment];
+        int base = (index % recordsPerSegment) * recordBytes + offset;
+        for (int i = 0; i < len; i++) {
+            out[outOff + i] = (segment.get(base + i) & 0xFF) / 255.0;
+        }
+    }
+
+    /**
+     * Converts floats of a record to doubles. Only absolute reads are used, so
+     * this may be called from any number of threads at once
+     * 
+     * @param index  the index of the record
+     * @param offset the position of the first float within the record, in bytes
+     * @param len    the amount of floats to convert
+     * @param out    the array the values are written to
+     * @param outOff the index in out of the first value
+     */
+    void readFloats(int index, int offset, int len, double[] out, int outOff) {
+        MappedByteBuffer segment = segments[index / recordsPerSegment];
+        int base = (index % recordsPerSegment) * recordBytes + offset;
+        for (int i = 0; i < len; i++) {
+            out[outOff + i] = segment.getFloat(base + i * Float.BYTES);
+        }
+    }
+
+    /**
+     * @param index  the index of the record
+     * @param offset the position of the byte within the record
+     * @return the unsigned byte at the given position
+     */
+    int readUnsignedByte(int index, int offset) {
+        return segments[index / recordsPerSegment].get((index % recordsPerSegment) * recordBytes + offset) & 0xFF;
+    }
+}
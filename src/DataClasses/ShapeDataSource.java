@@ -0,0 +1,60 @@
+package DataClasses;
+
+import java.util.Random;
+
+import Other.DataGenerator;
+
+/**
+ * An endless source of the 9x9 shapes made by DataGenerator. Every example is a
+ * randomly chosen shape, generated when it is read, and its expected output has
+ * a 1 at the index of the shape (square, diamond, plus, cross) and 0 elsewhere.
+ * A source created with a seed starts the same sequence of shapes over when it
+ * is reset, so it can also serve as a fixed held-out set
+ *
+ * @see DataGenerator
+ */
+public class ShapeDataSource implements DataSource {
+    private final Random r;
+    private final Long seed;
+
+    public ShapeDataSource() {
+        this.r = new Random();
+        this.seed = null;
+    }
+
+    /**
+     * @param seed the seed of the random shapes, so that the examples can be
+     *             reproduced
+     */
+    public ShapeDataSource(long seed) {
+        this.r = new Random(seed);
+        this.seed = seed;
+    }
+
+    @Override
+    public int getInputSize() {
+        return DataGenerator.SIZE * DataGenerator.SIZE;
+    }
+
+    @Override
+    public int getOutputSize() {
+        return DataGenerator.SHAPES;
+    }
+
+    @Override
+    public boolean next(double[] input, int inputOffset, double[] expected, int expectedOffset) {
+        int shape = r.nextInt(DataGenerator.SHAPES);
+        DataGenerator.generate(shape, r, input, inputOffset);
+        for (int i = 0; i < DataGenerator.SHAPES; i++) {
+            expected[expectedOffset + i] = i == shape ? 1 : 0;
+        }
+        return true;
+    }
+
+    @Override
+    public void reset() {
+        if (seed != null) {
+            r.setSeed(seed);
+        }
+    }
+}
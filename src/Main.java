@@ -1,55 +1,80 @@
-import java.awt.image.*;
 import java.io.File;
 import java.io.IOException;
 import java.text.DecimalFormat;
 import java.util.Arrays;
-import java.util.HashMap;
 import java.util.Random;
 
-import javax.imageio.ImageIO;
-
+import DataClasses.BatchIterator;
+import DataClasses.ImageLoader;
+import DataClasses.ShapeDataSource;
 import Exceptions.TooFewLayersException;
+import NetworkClasses.EarlyStopping;
 import NetworkClasses.Network;
+import NetworkClasses.ParallelTrainer;
 import Other.Constants;
-import Other.DataGenerator;
 import Other.Util;
 import Other.FunctionClasses.Activation.ActivationOptions;
 import Other.FunctionClasses.Cost.CostFunction;
 import Other.FunctionClasses.Cost.CostOptions;
+import Other.FunctionClasses.Optimizer.Optimizer;
+import Other.FunctionClasses.Optimizer.OptimizerOptions;
 
 public class Main {
-    public static HashMap<OutputProfiles, double[][][]> trainingData = new HashMap<>();
-
-    // TODO: implement momentum cleanly
-    // TODO: Use MNIST handwriting to test NN
     public static void main(String[] args) throws TooFewLayersException {
-        // Data prep
-        prepareData();
-
         // Training
         System.out.println("Training...");
         Network n = new Network(new int[] { 81, 57, 4 }, new ActivationOptions[] { ActivationOptions.SIGMOID,
-                ActivationOptions.SIGMOID, ActivationOptions.LEAKY_RE_LU }, CostOptions.QUADRATIC);
-        for (int i = 0; i < Constants.batchSize * 1000; i++) {
-            OutputProfiles op = OutputProfiles.getRandomProfile();
-            n.pulseWithInput(Util.flattenArr(trainingData.get(op)[new Random().nextInt(100000)]));
-            n.learnFrom(op.getProfile());
-            if (i % Constants.batchSize == 0)
-                n.updateLayers();
+                ActivationOptions.SOFTMAX, ActivationOptions.SIGMOID }, CostOptions.CROSS_ENTROPY);
+        n.setOptimizer(new Optimizer(OptimizerOptions.MOMENTUM));
+        n.addTrainingListener(m -> {
+            if (m.getBatch() % 100 == 0) {
+                System.out.println(m);
+            }
+        });
+        EarlyStopping validation = new EarlyStopping(new ShapeDataSource(42), 2048, 5);
+        try (ParallelTrainer trainer = new ParallelTrainer(n);
+                BatchIterator batches = new BatchIterator(new ShapeDataSource(), Constants.batchSize);
+                validation) {
+            for (int i = 1; i <= 1000 && !validation.shouldStop(); i++) {
+                trainer.trainBatch(batches.next());
+                if (i % 50 == 0) {
+                    validation.validate(n);
+                }
+            }
         }
-        System.out.println("Training Complete!");
+        if (validation.getBest() != null) {
+            n = validation.getBest();
+        }
+        System.out.println("Training Complete! Best validation loss: " + validation.getBestLoss());
+        System.out.print(n.evaluate(new ShapeDataSource(7), 10000));
+        System.out.print(n.quantize(new ShapeDataSource(42), 2048).compare(n.compile(), new ShapeDataSource(7), 10000));
+
+        // Pruning and fine-tuning a copy
+        Network pruned = n.copy();
+        pruned.pruneToSparsity(0.8);
+        try (ParallelTrainer trainer = new ParallelTrainer(pruned);
+                BatchIterator batches = new BatchIterator(new ShapeDataSource(), Constants.batchSize)) {
+            for (int i = 1; i <= 200; i++) {
+                trainer.trainBatch(batches.next());
+            }
+        }
+        System.out.println("Pruned " + Math.round(pruned.getSparsity() * 100) + "% of the weights");
+        System.out.print(pruned.evaluate(new ShapeDataSource(7), 10000));
+        Network narrow = n.pruneNeurons(new ShapeDataSource(42), 2048, 1e-3);
+        System.out.println("Layer sizes without dead neurons: " + Arrays.toString(narrow.compile().getLayerSizes()));
 
         // Network write/read
-        n.saveToFile(new File("src\\Saved Networks\\MyNetwork.txt"));
+        File saved = new File(Constants.savedNetworksDirectory, "MyNetwork.txt");
+        n.saveToFile(saved);
         System.out.println("Reading...");
-        n = Util.readFromFile(new File("src\\Saved Networks\\MyNetwork.txt"));
+        n = Util.readFromFile(saved);
         System.out.println("Read Complete");
 
         // Testing
-        testNN(n, new File("src\\A.png"));
-        testNN(n, new File("src\\B.png"));
-        testNN(n, new File("src\\C.png"));
-        testNN(n, new File("src\\D.png"));
+        testNN(n, new File("src", "A.png"));
+        testNN(n, new File("src", "B.png"));
+        testNN(n, new File("src", "C.png"));
+        testNN(n, new File("src", "D.png"));
     }
 
     /**
@@ -62,18 +87,7 @@ public class Main {
      */
     public static void testNN(Network n, File fileToRead) {
         try {
-            BufferedImage image = ImageIO.read(fileToRead);
-            double[][] data = new double[image.getHeight()][image.getWidth()];
-            for (int i = 0; i < data.length; i++) {
-                for (int j = 0; j < data[i].length; j++) {
-                    int rgb = image.getRGB(j, i);
-                    int r = (rgb >> 16) & 0xFF;
-                    int g = (rgb >> 8) & 0xFF;
-                    int b = (rgb & 0xFF);
-                    data[j][i] = Math.abs((((r + g + b) / 3) / 255) - 1);
-                }
-            }
-            n.initializeNetwork(Util.flattenArr(data));
+            n.initializeNetwork(new ImageLoader(9, 9, true).load(fileToRead));
             double[] result = n.pulseWithResult();
             System.out.println("This is a: " + OutputProfiles.getBestProfile(result, n.getCostFunction()));
             System.out.print("NN Output: ");
@@ -84,40 +98,6 @@ public class Main {
         }
     }
 
-    /**
-     * Prepares and populates the "trainingData HashSet with randomized matrixes as
-     * created by the DataGenerator class"
-     * 
-     * @see DataGenerator
-     */
-    public static void prepareData() {
-        int dataNum = 100000;
-        double[][][] aData = new double[dataNum][][];
-        for (int i = 0; i < aData.length; i++) {
-            aData[i] = DataGenerator.generateA();
-        }
-        trainingData.put(OutputProfiles.SQUARE, aData);
-
-        double[][][] bData = new double[dataNum][][];
-        for (int i = 0; i < bData.length; i++) {
-            bData[i] = DataGenerator.generateB();
-        }
-        trainingData.put(OutputProfiles.DIAMOND, bData);
-
-        double[][][] cData = new double[dataNum][][];
-        for (int i = 0; i < cData.length; i++) {
-            cData[i] = DataGenerator.generateC();
-        }
-        trainingData.put(OutputProfiles.PLUS, cData);
-
-        double[][][] dData = new double[dataNum][][];
-        for (int i = 0; i < dData.length; i++) {
-            dData[i] = DataGenerator.generateD();
-        }
-        trainingData.put(OutputProfiles.CROSS, dData);
-
-    }
-
     /**
      * An enum that holds "optimal" neural network outputs for multiple images,
      * along with methods that facilitate data input/comparison
@@ -0,0 +1,83 @@
+package NetworkClasses;
+
+import Other.Util;
+import Other.FunctionClasses.Cost.CostFunction;
+
+/**
+ * The forward and backward passes of a network written against plain arrays, so
+ * that they can run either on the layers themselves (Network.learnFrom) or on
+ * private activation and gradient buffers owned by a training thread
+ * (ParallelTrainer)
+ */
+final class Backpropagation {
+
+    private Backpropagation() {
+    }
+
+    /**
+     * Pulses the values held in a[0] through the layers, writing the values of
+     * layer l before activation to z[l] and its activations to a[l]
+     *
+     * @param layers the layers of the network, input layer first
+     * @param z      one pre-activation array per layer
+     * @param a      one activation array per layer
+     */
+    static void forward(Layer[] layers, double[][] z, double[][] a) {
+        for (int l = 0; l < layers.length - 1; l++) {
+            layers[l].activate(a[l], layers[l + 1], z[l + 1], a[l + 1]);
+        }
+    }
+
+    /**
+     * Backpropagates the error of a single training example and adds the
+     * resulting weight and bias changes to the given running totals. The weights
+     * are read in place and all intermediate results are written to the given
+     * scratch arrays, so nothing is allocated. The values of layer l were produced
+     * by the activation function of layer l - 1, so that is the function whose
+     * derivative is used, evaluated at the cached values of the forward pass. The
+     * output layer's derivative comes from the cost function, which fuses it with
+     * the activation function where possible
+     *
+     * @param layers   the layers of the network, input layer first
+     * @param cf       the cost function of the network
+     * @param z        the values before activation of every layer for this
+     *                 example
+     * @param a        the activations of every layer for this example
+     * @param expected the expected output of the network for this example
+     * @param dWSums   per layer running totals of weight changes, laid out like
+     *                 the layer's weights
+     * @param dBSums   per layer running totals of bias changes
+     * @param dCda     per layer scratch arrays, as long as the layer
+     * @param dCdz     per layer scratch arrays, as long as the layer
+     */
+    static void backward(Layer[] layers, CostFunction cf, double[][] z, double[][] a, double[] expected,
+            double[][] dWSums, double[][] dBSums, double[][] dCda, double[][] dCdz) {
+        int last = layers.length - 1;
+        cf.calculateOutputDerivative(z[last], a[last], expected, layers[last - 1].getActivationFunction(), dCda[last],
+                dCdz[last]);
+        for (int l = last; l > 0; l--) {
+            if (l < last) {
+                Util.calculatedCdz(z[l], a[l], dCda[l], layers[l - 1].getActivationFunction(), dCdz[l]);
+            }
+            Util.addVector(dBSums[l], dCdz[l]);
+            Util.addOuterProduct(dWSums[l - 1], a[l - 1], dCdz[l]);
+            if (l > 1) {
+                layers[l - 1].backpropagate(dCdz[l], dCda[l - 1]);
+            }
+        }
+    }
+
+    /**
+     * Allocates one scratch array per layer, each as long as its layer
+     *
+     * @param layers the layers of the network
+     * @return the scratch arrays
+     */
+    static double[][] scratch(Layer[] layers) {
+        double[][] ret_val = new double[layers.length][];
+        for (int l = 0; l < layers.length; l++) {
+            ret_val[l] = new double[layers[l].size()];
+        }
+        return ret_val;
+    }
+}
@@ -0,0 +1,401 @@
+package NetworkClasses;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedList;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.zip.CRC32;
+
+import Exceptions.TooFewLayersException;
+import Other.FunctionClasses.Activation.ActivationFunction;
+import Other.FunctionClasses.Cost.CostFunction;
+
+/**
+ * Reads and writes networks in a binary format that can be loaded without any
+ * parsing. All numbers are little-endian:
+ *
+ * <pre>
+ * [MAGIC "JNNB"] [VERSION (int)] [COST FUNCTION (string)] [# OF LAYERS (int)]
+ * for every layer:
+ *     [NEURONS IN CURRENT LAYER (int)] [NEURONS IN NEXT LAYER (int)] [ACTIVATION FUNCTION (string)]
+ *     [PRECISION (string)] [NON-ZERO WEIGHTS (int), -1 IF THE WEIGHTS ARE STORED DENSE,
+ *     -2 IF THEY ARE STORED DENSE AND SOME ARE PRUNED]
+ * [CRC32 OF THE WHOLE FILE EXCEPT THIS FIELD (long)]
+ * [ZERO PADDING UP TO A MULTIPLE OF 8 BYTES]
+ * for every layer:
+ *     dense:
+ *     [WEIGHT MATRIX, ROW BY ROW (n * m doubles, or n * m floats padded to 8 bytes)]
+ *     sparse (compressed sparse rows, nz non-zero weights):
+ *     [ROW STARTS (n + 1 ints)] [COLUMNS (nz ints)] [ZERO PADDING UP TO 8 BYTES]
+ *     [NON-ZERO WEIGHTS, ROW BY ROW (nz doubles, or nz floats padded to 8 bytes)]
+ *     [BIASES (n doubles)]
+ * </pre>
+ *
+ * Strings are stored as a short holding the length followed by UTF-8 bytes. A
+ * layer's weights are written sparse when that takes less space than writing
+ * them dense, which is the case once about a third of them are zero, e.g. after
+ * pruning. The zero weights of sparse layers and of dense layers marked as
+ * pruned are marked as pruned again when they are read, so they stay zero when
+ * the network is trained further. Version 1 files have no precision strings and only double precision
+ * layers, version 1 and 2 files only have dense layers, and the checksum of
+ * version 1 to 3 files only covers what follows the header.
+ * Files are read through a MappedByteBuffer, so the weights are copied straight
+ * from the page cache into the layers
+ */
+public final class BinaryNetworkFile {
+    private static final int MAGIC = 0x424E4E4A; // "JNNB" read as a little-endian int
+    private static final int VERSION = 4;
+    private static final int CHUNK_SIZE = 1 << 16;
+    private static final int DENSE = -1;
+    private static final int DENSE_PRUNED = -2;
+
+    private BinaryNetworkFile() {
+    }
+
+    /**
+     * Writes a network to a file in the binary format. The file's contents are
+     * forced to the storage device before this returns
+     *
+     * @param n the network to write
+     * @param f the file to write to. Created if it does not exist and truncated if
+     *          it does
+     * @throws IOException if the file could not be written
+     */
+    public static void write(Network n, File f) throws IOException {
+        Layer[] layers = n.getLayers().toArray(new Layer[0]);
+        int[] nonZero = new int[layers.length];
+        for (int i = 0; i < layers.length; i++) {
+            if (isSparser(layers[i])) {
+                nonZero[i] = layers[i].countNonZeroWeights();
+            } else {
+                nonZero[i] = layers[i].getPrunedCount() > 0 ? DENSE_PRUNED : DENSE;
+            }
+        }
+        ByteBuffer header = ByteBuffer.allocate(headerSize(n, layers)).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(MAGIC);
+        header.putInt(VERSION);
+        putString(header, n.getCostFunction().getCo());
+        header.putInt(layers.length);
+        for (int i = 0; i < layers.length; i++) {
+            header.putInt(layers[i].size());
+            header.putInt(layers[i].getNextNodesNum());
+            putString(header, layers[i].getActivationFunction().getAo());
+            putString(header, layers[i].getPrecision().toString());
+            header.putInt(nonZero[i]);
+        }
+        int checksumPosition = header.position();
+        header.putLong(0);
+        header.position(header.capacity()).flip();
+        CRC32 crc = new CRC32();
+        updateSkipping(crc, header, checksumPosition);
+
+        try (FileChannel ch = FileChannel.open(f.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ch.position(header.capacity());
+            ByteBuffer chunk = ByteBuffer.allocateDirect(CHUNK_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            for (int i = 0; i < layers.length; i++) {
+                Layer l = layers[i];
+                if (nonZero[i] >= 0) {
+                    writeSparse(ch, chunk, crc, l, nonZero[i]);
+                } else if (l.getPrecision() == Precision.FLOAT) {
+                    writeFloats(ch, chunk, crc, l.getFloatWeightArray());
+                } else {
+                    writeDoubles(ch, chunk, crc, l.getWeightArray());
+                }
+                writeDoubles(ch, chunk, crc, l.getBiasArray());
+            }
+            header.putLong(checksumPosition, crc.getValue());
+            ch.position(0);
+            while (header.hasRemaining()) {
+                ch.write(header);
+            }
+            ch.force(true);
+        }
+    }
+
+    /**
+     * Reads a network that was written with write(Network, File)
+     *
+     * @param f the file to read from
+     * @return the network stored in the file
+     * @throws IOException if the file could not be read, is not in the binary
+     *                     format or is corrupted
+     */
+    public static Network read(File f) throws IOException {
+        try (FileChannel ch = FileChannel.open(f.toPath(), StandardOpenOption.READ)) {
+            MappedByteBuffer buf = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+            buf.order(ByteOrder.LITTLE_ENDIAN);
+            if (buf.remaining() < 8 || buf.getInt() != MAGIC) {
+                throw new IOException(f + " is not a binary network file");
+            }
+            int version = buf.getInt();
+            if (version < 1 || version > VERSION) {
+                throw new IOException("Unsupported binary network file version " + version);
+            }
+            CostFunction cf = CostFunction.convertStringToObject(getString(buf));
+            int layerAmount = buf.getInt();
+            int[] sizes = new int[layerAmount];
+            int[] nextSizes = new int[layerAmount];
+            ActivationFunction[] afs = new ActivationFunction[layerAmount];
+            Precision[] precisions = new Precision[layerAmount];
+            int[] nonZero = new int[layerAmount];
+            for (int i = 0; i < layerAmount; i++) {
+                sizes[i] = buf.getInt();
+                nextSizes[i] = buf.getInt();
+                afs[i] = ActivationFunction.convertStringToObject(getString(buf));
+                precisions[i] = version >= 2 ? Precision.valueOf(getString(buf)) : Precision.DOUBLE;
+                nonZero[i] = version >= 3 ? buf.getInt() : DENSE;
+            }
+            int checksumPosition = buf.position();
+            long checksum = buf.getLong();
+            buf.position(align(buf.position()));
+
+            CRC32 crc = new CRC32();
+            if (version >= 4) {
+                updateSkipping(crc, buf.duplicate().position(0), checksumPosition);
+            } else {
+                crc.update(buf.duplicate());
+            }
+            if (crc.getValue() != checksum) {
+                throw new IOException("Checksum mismatch in " + f + ", the file is corrupted");
+            }
+            Queue<Layer> layerQueue = new LinkedList<>();
+            for (int i = 0; i < layerAmount; i++) {
+                double[] biases = new double[sizes[i]];
+                if (nonZero[i] >= 0) {
+                    Layer l = readSparse(buf, sizes[i], nextSizes[i], nonZero[i], precisions[i], biases, afs[i]);
+                    buf.asDoubleBuffer().get(biases);
+                    l.pruneZeros();
+                    layerQueue.add(l);
+                } else {
+                    Layer l;
+                    if (precisions[i] == Precision.FLOAT) {
+                        float[] weights = new float[sizes[i] * nextSizes[i]];
+                        buf.asFloatBuffer().get(weights);
+                        buf.position(align(buf.position() + weights.length * Float.BYTES));
+                        buf.asDoubleBuffer().get(biases);
+                        l = new Layer(sizes[i], nextSizes[i], weights, biases, afs[i]);
+                    } else {
+                        double[] weights = new double[sizes[i] * nextSizes[i]];
+                        buf.asDoubleBuffer().get(weights);
+                        buf.position(buf.position() + weights.length * Double.BYTES);
+                        buf.asDoubleBuffer().get(biases);
+                        l = new Layer(sizes[i], nextSizes[i], weights, biases, afs[i]);
+                    }
+                    if (nonZero[i] == DENSE_PRUNED) {
+                        l.pruneZeros();
+                    }
+                    layerQueue.add(l);
+                }
+                buf.position(buf.position() + biases.length * Double.BYTES);
+            }
+            return new Network(layerQueue, cf);
+        } catch (TooFewLayersException e) {
+            throw new IOException("Too few layers in " + f, e);
+        } catch (RuntimeException e) {
+            throw new IOException(f + " is truncated or malformed", e);
+        }
+    }
+
+    private static int headerSize(Network n, Layer[] layers) {
+        int size = 4 + 4 + stringSize(n.getCostFunction().getCo()) + 4;
+        for (Layer l : layers) {
+            size += 4 + 4 + stringSize(l.getActivationFunction().getAo());
+            size += stringSize(l.getPrecision().toString()) + 4;
+        }
+        return align(size + 8);
+    }
+
+    /**
+     * @return true if a layer's weights take less space in sparse form than dense
+     */
+    private static boolean isSparser(Layer l) {
+        long weightBytes = l.getPrecision() == Precision.FLOAT ? Float.BYTES : Double.BYTES;
+        long nonZero = l.countNonZeroWeights();
+        long dense = align((long) l.size() * l.getNextNodesNum() * weightBytes);
+        long sparse = align((l.size() + 1 + nonZero) * Integer.BYTES) + align(nonZero * weightBytes);
+        return sparse < dense;
+    }
+
+    private static void writeSparse(FileChannel ch, ByteBuffer chunk, CRC32 crc, Layer l, int nonZero)
+            throws IOException {
+        int rows = l.size();
+        int cols = l.getNextNodesNum();
+        float[] fw = l.getFloatWeightArray();
+        double[] w = l.getWeightArray();
+        int[] structure = new int[rows + 1 + nonZero];
+        double[] values = fw == null ? new double[nonZero] : null;
+        float[] floatValues = fw != null ? new float[nonZero] : null;
+        int k = 0;
+        for (int i = 0; i < rows; i++) {
+            structure[i] = k;
+            for (int j = 0; j < cols; j++) {
+                int index = i * cols + j;
+                if (fw != null ? fw[index] != 0 : w[index] != 0) {
+                    structure[rows + 1 + k] = j;
+                    if (fw != null) {
+                        floatValues[k] = fw[index];
+                    } else {
+                        values[k] = w[index];
+                    }
+                    k++;
+                }
+            }
+        }
+        structure[rows] = k;
+        writeInts(ch, chunk, crc, structure);
+        if (fw != null) {
+            writeFloats(ch, chunk, crc, floatValues);
+        } else {
+            writeDoubles(ch, chunk, crc, values);
+        }
+    }
+
+    /**
+     * Reads the sparse weights of a layer and scatters them into a dense weight
+     * matrix. Leaves the buffer at the layer's biases
+     */
+    private static Layer readSparse(ByteBuffer buf, int rows, int cols, int nonZero, Precision precision,
+            double[] biases, ActivationFunction af) throws IOException {
+        int[] rowStarts = new int[rows + 1];
+        int[] columns = new int[nonZero];
+        IntBuffer ints = buf.asIntBuffer();
+        ints.get(rowStarts);
+        ints.get(columns);
+        buf.position(align(buf.position() + (rowStarts.length + columns.length) * Integer.BYTES));
+        double[] values = new double[nonZero];
+        float[] floatValues = new float[precision == Precision.FLOAT ? nonZero : 0];
+        if (precision == Precision.FLOAT) {
+            buf.asFloatBuffer().get(floatValues);
+            buf.position(align(buf.position() + nonZero * Float.BYTES));
+        } else {
+            buf.asDoubleBuffer().get(values);
+            buf.position(buf.position() + nonZero * Double.BYTES);
+        }
+        double[] weights = precision == Precision.FLOAT ? null : new double[rows * cols];
+        float[] floatWeights = precision == Precision.FLOAT ? new float[rows * cols] : null;
+        for (int i = 0; i < rows; i++) {
+            if (rowStarts[i] > rowStarts[i + 1] || rowStarts[i + 1] > nonZero) {
+                throw new IOException("Malformed sparse layer");
+            }
+            for (int k = rowStarts[i]; k < rowStarts[i + 1]; k++) {
+                int index = i * cols + Objects.checkIndex(columns[k], cols);
+                if (floatWeights != null) {
+                    floatWeights[index] = floatValues[k];
+                } else {
+                    weights[index] = values[k];
+                }
+            }
+        }
+        return floatWeights != null ? new Layer(rows, cols, floatWeights, biases, af)
+                : new Layer(rows, cols, weights, biases, af);
+    }
+
+    /**
+     * Adds the remaining bytes of a buffer to a checksum, leaving out the 8 byte
+     * checksum field at the given position
+     */
+    private static void updateSkipping(CRC32 crc, ByteBuffer buf, int checksumPosition) {
+        ByteBuffer before = buf.duplicate();
+        before.limit(checksumPosition);
+        crc.update(before);
+        ByteBuffer after = buf.duplicate();
+        after.position(checksumPosition + Long.BYTES);
+        crc.update(after);
+    }
+
+    private static int align(int position) {
+        return (position + 7) & ~7;
+    }
+
+    private static int stringSize(String s) {
+        return 2 + s.getBytes(StandardCharsets.UTF_8).length;
+    }
+
+    private static void putString(ByteBuffer buf, String s) {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        buf.putShort((short) bytes.length);
+        buf.put(bytes);
+    }
+
+    private static String getString(ByteBuffer buf) {
+        byte[] bytes = new byte[buf.getShort()];
+        buf.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeDoubles(FileChannel ch, ByteBuffer chunk, CRC32 crc, double[] values)
+            throws IOException {
+        int offset = 0;
+        while (offset < values.length) {
+            int count = Math.min(values.length - offset, chunk.capacity() / Double.BYTES);
+            chunk.clear();
+            chunk.asDoubleBuffer().put(values, offset, count);
+            chunk.limit(count * Double.BYTES);
+            crc.update(chunk.duplicate());
+            while (chunk.hasRemaining()) {
+                ch.write(chunk);
+            }
+            offset += count;
+        }
+    }
+
+    private static long align(long position) {
+        return (position + 7) & ~7;
+    }
+
+    private static void writeInts(FileChannel ch, ByteBuffer chunk, CRC32 crc, int[] values) throws IOException {
+        int offset = 0;
+        while (offset < values.length) {
+            int count = Math.min(values.length - offset, chunk.capacity() / Integer.BYTES);
+            chunk.clear();
+            chunk.asIntBuffer().put(values, offset, count);
+            int bytes = count * Integer.BYTES;
+            offset += count;
+            if (offset == values.length) {
+                // Pad so that the values that follow stay 8 byte aligned
+                for (int i = bytes; i < align(bytes); i++) {
+                    chunk.put(i, (byte) 0);
+                }
+                bytes = align(bytes);
+            }
+            chunk.limit(bytes);
+            crc.update(chunk.duplicate());
+            while (chunk.hasRemaining()) {
+                ch.write(chunk);
+            }
+        }
+    }
+
+    private static void writeFloats(FileChannel ch, ByteBuffer chunk, CRC32 crc, float[] values)
+            throws IOException {
+        int offset = 0;
+        while (offset < values.length) {
+            int count = Math.min(values.length - offset, chunk.capacity() / Float.BYTES);
+            chunk.clear();
+            chunk.asFloatBuffer().put(values, offset, count);
+            int bytes = count * Float.BYTES;
+            offset += count;
+            if (offset == values.length) {
+                // Pad so that the doubles that follow stay 8 byte aligned
+                for (int i = bytes; i < align(bytes); i++) {
+                    chunk.put(i, (byte) 0);
+                }
+                bytes = align(bytes);
+            }
+            chunk.limit(bytes);
+            crc.update(chunk.duplicate());
+            while (chunk.hasRemaining()) {
+                ch.write(chunk);
+            }
+        }
+    }
+}
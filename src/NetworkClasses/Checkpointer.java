@@ -0,0 +1,163 @@
+package NetworkClasses;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Saves checkpoints of a network while it trains without pausing training for
+ * the write. On the training thread checkpoint only copies the weight and bias
+ * arrays of the network, one array copy per layer, and the copy is written to
+ * disk on a background thread in the binary format. Every checkpoint is first
+ * written to a temporary file and forced to disk, then renamed, and the rename
+ * is forced to disk as well where the platform allows syncing a directory (not
+ * on Windows). A crash therefore never leaves a half written checkpoint behind,
+ * and only the newest checkpoints are kept.
+ * <p>
+ * checkpoint must be called between updates of the network (for example between
+ * calls to updateLayers) so that the copy is consistent. If checkpoints are
+ * requested faster than they can be written, only the newest waiting one is
+ * written
+ *
+ * @see BinaryNetworkFile
+ */
+public class Checkpointer implements AutoCloseable {
+    private static final String PREFIX = "checkpoint-";
+    private static final String SUFFIX = ".jnnb";
+
+    private final File directory;
+    private final int keep;
+    private final ExecutorService writer;
+    private final AtomicReference<NetworkSnapshot> pending = new AtomicReference<>();
+    private volatile File latest;
+    private long counter;
+
+    /**
+     * @param directory the directory the checkpoints are written to. Created if
+     *                  it does not exist
+     * @param keep      the amount of most recent checkpoints to keep
+     */
+    public Checkpointer(File directory, int keep) {
+        if (keep < 1) {
+            throw new IllegalArgumentException("At least one checkpoint has to be kept");
+        }
+        this.directory = directory;
+        this.keep = keep;
+        directory.mkdirs();
+        File[] existing = listCheckpoints();
+        if (existing.length > 0) {
+            latest = existing[existing.length - 1];
+            counter = sequenceOf(latest) + 1;
+        }
+        writer = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "checkpoint-writer");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Takes a snapshot of the network's weights and biases and writes it in the
+     * background
+     *
+     * @param n the network to checkpoint
+     * @throws IllegalStateException if this checkpointer has been closed
+     */
+    public void checkpoint(Network n) {
+        if (writer.isShutdown()) {
+            throw new IllegalStateException("The checkpointer has been closed");
+        }
+        if (pending.getAndSet(new NetworkSnapshot(n)) == null) {
+            writer.execute(this::writePending);
+        }
+    }
+
+    /**
+     * @return the most recently completed checkpoint, or null if there is none
+     */
+    public File getLatest() {
+        return latest;
+    }
+
+    private void writePending() {
+        NetworkSnapshot taken = pending.getAndSet(null);
+        if (taken == null) {
+            return;
+        }
+        Network snapshot = taken.toNetwork();
+        String name = PREFIX + String.format("%010d", counter++) + SUFFIX;
+        File tmp = new File(directory, name + ".tmp");
+        File target = new File(directory, name);
+        try {
+            BinaryNetworkFile.write(snapshot, tmp);
+            try {
+                Files.move(tmp.toPath(), target.toPath(), StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+            syncDirectory();
+            latest = target;
+            File[] all = listCheckpoints();
+            for (int i = 0; i < all.length - keep; i++) {
+                Files.deleteIfExists(all[i].toPath());
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+            tmp.delete();
+        }
+    }
+
+    /**
+     * Forces the directory entries, and so the rename of the latest checkpoint, to
+     * disk. Directories cannot be opened for this on every platform, in which case
+     * this does nothing
+     */
+    private void syncDirectory() {
+        try (FileChannel ch = FileChannel.open(directory.toPath(), StandardOpenOption.READ)) {
+            ch.force(true);
+        } catch (IOException e) {
+            // Not supported on this platform
+        }
+    }
+
+    private File[] listCheckpoints() {
+        File[] ret_val = directory.listFiles((dir, name) -> name.startsWith(PREFIX) && name.endsWith(SUFFIX));
+        if (ret_val == null) {
+            return new File[0];
+        }
+        Arrays.sort(ret_val);
+        return ret_val;
+    }
+
+    private static long sequenceOf(File f) {
+        String name = f.getName();
+        try {
+            return Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Waits for the checkpoints that have been requested so far to be written,
+     * then stops the background thread. No checkpoints can be requested afterwards
+     */
+    @Override
+    public void close() {
+        writer.shutdown();
+        try {
+            writer.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,245 @@
+package NetworkClasses;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import DataClasses.Batch;
+import DataClasses.DataSource;
+import Other.Util;
+import Other.FunctionClasses.Activation.ActivationFunction;
+import Other.FunctionClasses.Cost.CostFunction;
+
+/**
+ * A read-only copy of a Network made for inference. The weights and biases are
+ * copied out of the network when it is compiled and never change afterwards,
+ * and activations are written to a Workspace instead of to the layers, so a
+ * single CompiledNetwork can be used by any number of threads at once. Later
+ * training of the original network does not affect a compiled copy
+ *
+ * @see Network#compile()
+ */
+public final class CompiledNetwork implements Predictor {
+    private static final int EVALUATION_CHUNK = 256;
+
+    private final int[] sizes;
+    private final double[][] weights;
+    private final float[][] floatWeights;
+    private final double[][] biases;
+    private final ActivationFunction[] afs;
+    private final CostFunction cf;
+    private final ThreadLocal<Workspace> workspaces = ThreadLocal.withInitial(this::newWorkspace);
+
+    CompiledNetwork(Network n) {
+        int numLayers = n.getLayers().size();
+        sizes = new int[numLayers];
+        weights = new double[numLayers][];
+        floatWeights = new float[numLayers][];
+        biases = new double[numLayers][];
+        afs = new ActivationFunction[numLayers];
+        int counter = 0;
+        for (Layer l : n.getLayers()) {
+            sizes[counter] = l.size();
+            if (l.getPrecision() == Precision.FLOAT) {
+                floatWeights[counter] = l.getFloatWeightArray().clone();
+            } else {
+                weights[counter] = l.getWeightArray().clone();
+            }
+            biases[counter] = l.getBiasArray().clone();
+            afs[counter] = l.getActivationFunction();
+            counter++;
+        }
+        cf = n.getCostFunction();
+    }
+
+    /**
+     * Per-thread scratch space holding the activations of every layer. A
+     * workspace must not be shared by threads that predict at the same time
+     */
+    public static final class Workspace {
+        private final double[][] activations;
+
+        private Workspace(int[] sizes) {
+            activations = new double[sizes.length][];
+            for (int i = 0; i < sizes.length; i++) {
+                activations[i] = new double[sizes[i]];
+            }
+        }
+    }
+
+    /**
+     * Creates a workspace sized for this network that can be passed to
+     * predict(double[], Workspace)
+     *
+     * @return a new workspace
+     */
+    public Workspace newWorkspace() {
+        return new Workspace(sizes);
+    }
+
+    /**
+     * Pulses the input through the network using a workspace owned by the calling
+     * thread. Safe to call from any number of threads at once
+     *
+     * @param input the input values, one per neuron in the initial layer
+     * @return a new array holding the output of the network
+     */
+    @Override
+    public double[] predict(double[] input) {
+        return predict(input, workspaces.get()).clone();
+    }
+
+    /**
+     * Pulses the input through the network using a workspace owned by the calling
+     * thread and copies the output. Safe to call from any number of threads at
+     * once
+     *
+     * @param input  the input values, one per neuron in the initial layer
+     * @param output the array to write the output of the network to
+     */
+    @Override
+    public void predict(double[] input, double[] output) {
+        System.arraycopy(predict(input, workspaces.get()), 0, output, 0, getOutputSize());
+    }
+
+    /**
+     * Pulses the input through the network using the caller's workspace. Nothing
+     * is allocated
+     *
+     * @param input the input values, one per neuron in the initial layer
+     * @param ws    the workspace to hold the activations
+     * @return the output of the network. This is the workspace's output array, so
+     *         it is overwritten by the next call that uses the same workspace
+     */
+    public double[] predict(double[] input, Workspace ws) {
+        double[][] a = ws.activations;
+        System.arraycopy(input, 0, a[0], 0, sizes[0]);
+        for (int l = 0; l < sizes.length - 1; l++) {
+            if (floatWeights[l] != null) {
+                Util.forwardLayer(a[l], floatWeights[l], sizes[l], sizes[l + 1], biases[l + 1], afs[l], a[l + 1]);
+            } else {
+                Util.forwardLayer(a[l], weights[l], sizes[l], sizes[l + 1], biases[l + 1], afs[l], a[l + 1]);
+            }
+        }
+        return a[sizes.length - 1];
+    }
+
+    /**
+     * Pulses a batch of inputs stored back to back through the network. Safe to
+     * call from any number of threads at once
+     *
+     * @param inputs    the inputs, the values of sample k starting at index k *
+     *                  (neurons in the initial layer)
+     * @param batchSize the amount of samples in "inputs"
+     * @return the outputs of the network stored back to back in the same way
+     * @see Network#predictBatch(double[], int)
+     */
+    public double[] predictBatch(double[] inputs, int batchSize) {
+        double[] current = inputs;
+        for (int l = 0; l < sizes.length - 1; l++) {
+            double[] next = new double[batchSize * sizes[l + 1]];
+            if (floatWeights[l] != null) {
+                Util.forwardBatch(current, batchSize, floatWeights[l], sizes[l], sizes[l + 1], biases[l + 1], afs[l],
+                        next);
+            } else {
+                Util.forwardBatch(current, batchSize, weights[l], sizes[l], sizes[l + 1], biases[l + 1], afs[l], next);
+            }
+            current = next;
+        }
+        return current;
+    }
+
+    /**
+     * Evaluates this network on a labelled dataset using several threads. The
+     * calling thread reads the examples into chunks, and every chunk is pulsed
+     * through the network with predictBatch and scored on a pool thread. Only a
+     * few chunks are in memory at a time. The partial results are combined in
+     * the order the chunks were read, so the result does not depend on the
+     * amount of threads
+     *
+     * @param data        the examples to evaluate, read from the source's current
+     *                    position. The expected outputs must be one-hot
+     * @param maxExamples the largest amount of examples to evaluate. Fewer are
+     *                    evaluated if the source runs out first
+     * @param threads     the amount of threads to evaluate with
+     * @return the loss, accuracy and confusion matrix of this network on the
+     *         examples
+     * @see EvaluationResult
+     */
+    public EvaluationResult evaluate(DataSource data, int maxExamples, int threads) {
+        int inputSize = getInputSize();
+        int outputSize = getOutputSize();
+        if (data.getInputSize() != inputSize || data.getOutputSize() != outputSize) {
+            throw new IllegalArgumentException("The examples do not match a network with " + inputSize
+                    + " inputs and " + outputSize + " outputs");
+        }
+        BlockingQueue<Batch> free = new ArrayBlockingQueue<>(2 * threads);
+        for (int i = 0; i < 2 * threads; i++) {
+            free.add(new Batch(EVALUATION_CHUNK, inputSize, outputSize));
+        }
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        List<Future<EvaluationResult>> parts = new ArrayList<>();
+        try {
+            int remaining = maxExamples;
+            while (remaining > 0) {
+                Batch b = free.take();
+                int size = b.fill(data, remaining);
+                if (size == 0) {
+                    break;
+                }
+                remaining -= size;
+                parts.add(pool.submit(() -> {
+                    EvaluationResult part = new EvaluationResult(outputSize);
+                    part.add(predictBatch(b.getInputs(), size), b.getExpected(), size, cf);
+                    free.add(b);
+                    return part;
+                }));
+            }
+            EvaluationResult ret_val = new EvaluationResult(outputSize);
+            for (Future<EvaluationResult> part : parts) {
+                ret_val.merge(part.get());
+            }
+            return ret_val;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while evaluating", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Evaluating a chunk failed", e.getCause());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * @return the amount of memory taken by the weights
+     */
+    public long getWeightBytes() {
+        long ret_val = 0;
+        for (int l = 0; l < sizes.length - 1; l++) {
+            ret_val += (long) sizes[l] * sizes[l + 1] * (floatWeights[l] != null ? Float.BYTES : Double.BYTES);
+        }
+        return ret_val;
+    }
+
+    @Override
+    public int getInputSize() {
+        return sizes[0];
+    }
+
+    @Override
+    public int getOutputSize() {
+        return sizes[sizes.length - 1];
+    }
+
+    public int[] getLayerSizes() {
+        return sizes.clone();
+    }
+
+    public CostFunction getCostFunction() {
+        return cf;
+    }
+}
@@ -0,0 +1,198 @@
+package NetworkClasses;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import DataClasses.Batch;
+import DataClasses.DataSource;
+
+/**
+ * Evaluates a network on a held-out validation set while it trains, keeps the
+ * best version seen so far and tells the training loop when to stop. On the
+ * training thread validate only copies the weight and bias arrays of the
+ * network, one array copy per layer; the network is rebuilt from the copy and
+ * evaluated on a background thread, so training never pauses for either. If
+ * validations are requested faster than they can be evaluated, only the newest
+ * waiting one is evaluated. Training should stop once the validation loss has
+ * not improved by more than minDelta for "patience" evaluations in a row:
+ *
+ * <pre>
+ * try (EarlyStopping es = new EarlyStopping(validationSet, 2048, 5)) {
+ *     for (int i = 0; !es.shouldStop(); i++) {
+ *         trainer.trainBatch(batches.next());
+ *         if (i % 50 == 0) {
+ *             es.validate(n);
+ *         }
+ *     }
+ *     n = es.getBest();
+ * }
+ * </pre>
+ *
+ * validate must be called between updates of the network (for example between
+ * calls to updateLayers) so that the copy is consistent
+ */
+public class EarlyStopping implements AutoCloseable {
+    private static final int CHUNK = 256;
+
+    private final DataSource validation;
+    private final int examples;
+    private final int patience;
+    private final double minDelta;
+    private final ExecutorService evaluator;
+    private final AtomicReference<NetworkSnapshot> pending = new AtomicReference<>();
+    private Batch chunk;
+    private volatile Network best;
+    private volatile double bestLoss = Double.POSITIVE_INFINITY;
+    private volatile double lastLoss = Double.NaN;
+    private volatile int evaluations;
+    private volatile int sinceImprovement;
+
+    /**
+     * @param validation the held-out examples. The source is reset before every
+     *                   evaluation and must not be used by anything else
+     * @param examples   the largest amount of examples to evaluate each time.
+     *                   Fewer are used if the source runs out first
+     * @param patience   the amount of evaluations in a row without improvement
+     *                   after which training should stop
+     */
+    public EarlyStopping(DataSource validation, int examples, int patience) {
+        this(validation, examples, patience, 0);
+    }
+
+    /**
+     * @param validation the held-out examples. The source is reset before every
+     *                   evaluation and must not be used by anything else
+     * @param examples   the largest amount of examples to evaluate each time.
+     *                   Fewer are used if the source runs out first
+     * @param patience   the amount of evaluations in a row without improvement
+     *                   after which training should stop
+     * @param minDelta   how much lower than the best loss so far the validation
+     *                   loss has to be to count as an improvement
+     */
+    public EarlyStopping(DataSource validation, int examples, int patience, double minDelta) {
+        if (examples < 1 || patience < 1) {
+            throw new IllegalArgumentException("At least one example and a patience of one are needed");
+        }
+        this.validation = validation;
+        this.examples = examples;
+        this.patience = patience;
+        this.minDelta = minDelta;
+        evaluator = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "validation");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Takes a snapshot of the network's weights and biases and evaluates it on
+     * the validation set in the background
+     *
+     * @param n the network to validate
+     */
+    public void validate(Network n) {
+        if (pending.getAndSet(new NetworkSnapshot(n)) == null) {
+            evaluator.execute(this::evaluatePending);
+        }
+    }
+
+    private void evaluatePending() {
+        NetworkSnapshot taken = pending.getAndSet(null);
+        if (taken == null) {
+            return;
+        }
+        Network snapshot = taken.toNetwork();
+        double loss = evaluate(snapshot);
+        lastLoss = loss;
+        evaluations++;
+        if (loss < bestLoss - minDelta) {
+            bestLoss = loss;
+            best = snapshot;
+            sinceImprovement = 0;
+        } else {
+            sinceImprovement++;
+        }
+    }
+
+    /**
+     * @return the average cost of the snapshot over the validation examples
+     */
+    private double evaluate(Network snapshot) {
+        int outputSize = validation.getOutputSize();
+        if (chunk == null) {
+            chunk = new Batch(CHUNK, validation.getInputSize(), outputSize);
+        }
+        double[] result = new double[outputSize];
+        double[] expected = new double[outputSize];
+        double sum = 0;
+        int count = 0;
+        validation.reset();
+        while (count < examples && chunk.fill(validation) > 0) {
+            int size = Math.min(chunk.size(), examples - count);
+            double[] outputs = snapshot.predictBatch(chunk.getInputs(), size);
+            for (int k = 0; k < size; k++) {
+                System.arraycopy(outputs, k * outputSize, result, 0, outputSize);
+                System.arraycopy(chunk.getExpected(), k * outputSize, expected, 0, outputSize);
+                sum += snapshot.getCostFunction().getFunction().calculateOriginal(result, expected);
+            }
+            count += size;
+        }
+        return count > 0 ? sum / count : Double.NaN;
+    }
+
+    /**
+     * @return true once the validation loss has not improved for "patience"
+     *         evaluations in a row
+     */
+    public boolean shouldStop() {
+        return sinceImprovement >= patience;
+    }
+
+    /**
+     * Returns the network as it was when it had the lowest validation loss. Only
+     * the weights, biases and optimizer settings are kept, not the optimizer's
+     * state (momentum, RMSProp and Adam moments), so training the returned
+     * network further starts the optimizer over as if from the first update
+     *
+     * @return a copy of the network as it was when it had the lowest validation
+     *         loss so far, or null if nothing has been evaluated yet
+     */
+    public Network getBest() {
+        return best;
+    }
+
+    public double getBestLoss() {
+        return bestLoss;
+    }
+
+    /**
+     * @return the validation loss of the most recent evaluation, or NaN if
+     *         nothing has been evaluated yet
+     */
+    public double getLastLoss() {
+        return lastLoss;
+    }
+
+    /**
+     * @return the amount of evaluations done so far
+     */
+    public int getEvaluations() {
+        return evaluations;
+    }
+
+    /**
+     * Waits for the validations that have been requested so far to be evaluated,
+     * then stops the background thread
+     */
+    @Override
+    public void close() {
+        evaluator.shutdown();
+        try {
+            evaluator.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package NetworkClasses;
+
+import Other.FunctionClasses.Cost.CostFunction;
+
+/**
+ * The result of evaluating a network on a labelled dataset: the average loss,
+ * the accuracy, and a confusion matrix from which the precision and recall of
+ * every class are calculated. The expected outputs are treated as one-hot: the
+ * class of an example is the index of its largest expected value and the class
+ * predicted by the network is the index of its largest output
+ *
+ * @see CompiledNetwork#evaluate(DataClasses.DataSource, int, int)
+ */
+public final class EvaluationResult {
+    private final long[][] confusion;
+    private double lossSum;
+    private long examples;
+
+    EvaluationResult(int classes) {
+        confusion = new long[classes][classes];
+    }
+
+    /**
+     * Scores a batch of outputs against their expected values
+     * 
+     * @param outputs  the outputs of the network, stored back to back
+     * @param expected the expected outputs, stored the same way
+     * @param size     the amount of examples
+     * @param cf       the cost function the loss is calculated with
+     */
+    void add(double[] outputs, double[] expected, int size, CostFunction cf) {
+        int classes = confusion.length;
+        double[] result = new double[classes];
+        double[] desired = new double[classes];
+        for (int k = 0; k < size; k++) {
+            int offset = k * classes;
+            System.arraycopy(outputs, offset, result, 0, classes);
+            System.arraycopy(expected, offset, desired, 0, classes);
+            lossSum += cf.getFunction().calculateOriginal(result, desired);
+            confusion[argMax(desired)][argMax(result)]++;
+        }
+        examples += size;
+    }
+
+    /**
+     * Adds the counts of another result to this one
+     * 
+     * @param other the result to add
+     */
+    void merge(EvaluationResult other) {
+        for (int i = 0; i < confusion.length; i++) {
+            for (int j = 0; j < confusion.length; j++) {
+                confusion[i][j] += other.confusion[i][j];
+            }
+        }
+        lossSum += other.lossSum;
+        examples += other.examples;
+    }
+
+    private static int argMax(double[] v) {
+        int ret_val = 0;
+        for (int i = 1; i < v.length; i++) {
+            if (v[i] > v[ret_val]) {
+                ret_val = i;
+            }
+        }
+        return ret_val;
+    }
+
+    /**
+     * @return the amount of examples evaluated
+     */
+    public long getExamples() {
+        return examples;
+    }
+
+    public int getClasses() {
+        return confusion.length;
+    }
+
+    /**
+     * @return the average cost of the examples
+     */
+    public double getLoss() {
+        return examples > 0 ? lossSum / examples : Double.NaN;
+    }
+
+    /**
+     * @return the fraction of examples whose class was predicted correctly
+     */
+    public double getAccuracy() {
+        long correct = 0;
+        for (int i = 0; i < confusion.length; i++) {
+            correct += confusion[i][i];
+        }
+        return examples > 0 ? (double) correct / examples : Double.NaN;
+    }
+
+    /**
+     * @param c a class
+     * @return the fraction of the examples predicted to be of class c that are of
+     *         class c, or NaN if no example was predicted to be of class c
+     */
+    public double getPrecision(int c) {
+        long predicted = 0;
+        for (int i = 0; i < confusion.length; i++) {
+            predicted += confusion[i][c];
+        }
+        return predicted > 0 ? (double) confusion[c][c] / predicted : Double.NaN;
+    }
+
+    /**
+     * @param c a class
+     * @return the fraction of the examples of class c that were predicted to be of
+     *         class c, or NaN if there are no examples of class c
+     */
+    public double getRecall(int c) {
+        long actual = 0;
+        for (int j = 0; j < confusion.length; j++) {
+            actual += confusion[c][j];
+        }
+        return actual > 0 ? (double) confusion[c][c] / actual : Double.NaN;
+    }
+
+    /**
+     * Returns a copy of the confusion matrix. Element [i][j] is the amount of
+     * examples of class i that were predicted to be of class j
+     * 
+     * @return the confusion matrix
+     */
+    public long[][] getConfusionMatrix() {
+        long[][] ret_val = new long[confusion.length][];
+        for (int i = 0; i < confusion.length; i++) {
+            ret_val[i] = confusion[i].clone();
+        }
+        return ret_val;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder ret_val = new StringBuilder();
+        ret_val.append(String.format("%d examples, loss %.5f, accuracy %.2f%%%n", examples, getLoss(),
+                getAccuracy() * 100));
+        ret_val.append(String.format("%-8s%10s%10s   confusion (rows are actual classes)%n", "class", "precision",
+                "recall"));
+        for (int i = 0; i < confusion.length; i++) {
+            ret_val.append(String.format("%-8d%10.4f%10.4f  ", i, getPrecision(i), getRecall(i)));
+            for (int j = 0; j < confusion.length; j++) {
+                ret_val.append(String.format(" %8d", confusion[i][j]));
+            }
+            ret_val.append(System.lineSeparator());
+        }
+        return ret_val.toString();
+    }
+}
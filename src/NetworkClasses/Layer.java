@@ -1,84 +1,513 @@
 package NetworkClasses;
 
-import java.util.HashSet;
+import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.Queue;
+import java.util.Random;
 
 import Other.Constants;
 import Other.Util;
 import Other.FunctionClasses.Activation.ActivationFunction;
+import Other.FunctionClasses.Optimizer.Optimizer;
+import Other.FunctionClasses.Optimizer.OptimizerOptions;
 
+/**
+ * A layer of neurons. The weights of every neuron in the layer are stored in a
+ * single row-major array where row i holds the weights from neuron i of this
+ * layer to every neuron of the next layer (weights[i * nextNodesNum + j]).
+ * Biases and values are stored in arrays of their own, next to the values
+ * before activation (z) from the last pulse. The Neurons returned by
+ * getNeurons are views onto these arrays. Depending on the precision of the
+ * layer the weights are held in either a double[] or a float[]
+ *
+ * @see Precision
+ */
 public class Layer {
+    private static final Optimizer DEFAULT_OPTIMIZER = new Optimizer(OptimizerOptions.SGD);
+
+    private Precision precision = Precision.DOUBLE;
+    private double[] weights;
+    private float[] floatWeights;
+    private double[] biases;
+    private double[] values;
+    private double[] rawValues;
     private Queue<Neuron> neuronQueue = new LinkedList<>();
-    private HashSet<double[][]> dWSet = new HashSet<>();
-    private HashSet<double[]> dBSet = new HashSet<>();
-    private int[] matrixDims = new int[2];
-    private boolean hasWeights = false;
-    private boolean hasBiases = false;
+    private double[] dWSum;
+    private double[] dBSum;
+    private int dWCount = 0;
+    private int dBCount = 0;
+    private OptimizerOptions stateOptions;
+    private double[] weightState;
+    private double[] biasState;
+    private long updates = 0;
+    private boolean[] pruned;
+    private int prunedCount = 0;
     private ActivationFunction af;
+    private int nodesNum = 0;
     private int nextNodesNum = 0;
 
     public Layer(int nodesNum, int nextNodesNum, ActivationFunction af) {
+        this(nodesNum, nextNodesNum, af, new Random());
+    }
+
+    /**
+     * Creates a layer whose weights and biases are randomized with the given
+     * random number generator, so that networks can be recreated exactly from a
+     * seed
+     *
+     * @param nodesNum     the amount of neurons in this layer
+     * @param nextNodesNum the amount of neurons in the next layer
+     * @param af           the activation function of this layer
+     * @param r            the source of the random weights and biases
+     */
+    public Layer(int nodesNum, int nextNodesNum, ActivationFunction af, Random r) {
+        this(nodesNum, nextNodesNum, af, r, Precision.DOUBLE);
+    }
+
+    /**
+     * Creates a layer whose weights and biases are randomized with the given
+     * random number generator and whose weights are stored with the given
+     * precision
+     *
+     * @param nodesNum     the amount of neurons in this layer
+     * @param nextNodesNum the amount of neurons in the next layer
+     * @param af           the activation function of this layer
+     * @param r            the source of the random weights and biases
+     * @param precision    how the weights of this layer are stored
+     */
+    public Layer(int nodesNum, int nextNodesNum, ActivationFunction af, Random r, Precision precision) {
+        this.nodesNum = nodesNum;
+        this.nextNodesNum = nextNodesNum;
+        this.af = af;
+        this.precision = precision;
+        allocate();
+        double range = Constants.maxNeuronRange - Constants.minNeuronRange;
         for (int i = 0; i < nodesNum; i++) {
-            neuronQueue.add(new Neuron(true, nextNodesNum));
+            for (int j = 0; j < nextNodesNum; j++) {
+                setWeight(i * nextNodesNum + j, Constants.minNeuronRange + (range * r.nextDouble()));
+            }
+            biases[i] = Constants.minNeuronRange + (range * r.nextDouble());
         }
-        this.af = af;
-        this.nextNodesNum = nextNodesNum;
     }
 
     public Layer(int nodesNum, ActivationFunction af) {
-        for (int i = 0; i < nodesNum; i++) {
-            neuronQueue.add(new Neuron(true));
-        }
-        this.af = af;
+        this(nodesNum, 0, af);
     }
 
+    /**
+     * Builds a layer out of stand-alone neurons. The weights and biases of the
+     * neurons are copied into this layer's arrays
+     *
+     * @param neuronSet    the neurons of this layer
+     * @param af           the activation function of this layer
+     * @param nextNodesNum the amount of neurons in the next layer
+     */
     public Layer(Queue<Neuron> neuronSet, ActivationFunction af, int nextNodesNum) {
-        this.neuronQueue = neuronSet;
+        this(neuronSet, af, nextNodesNum, Precision.DOUBLE);
+    }
+
+    /**
+     * Builds a layer out of stand-alone neurons. The weights and biases of the
+     * neurons are copied into this layer's arrays
+     *
+     * @param neuronSet    the neurons of this layer
+     * @param af           the activation function of this layer
+     * @param nextNodesNum the amount of neurons in the next layer
+     * @param precision    how the weights of this layer are stored
+     */
+    public Layer(Queue<Neuron> neuronSet, ActivationFunction af, int nextNodesNum, Precision precision) {
+        this.nodesNum = neuronSet.size();
+        this.nextNodesNum = nextNodesNum;
         this.af = af;
+        this.precision = precision;
+        allocate();
+        int counter = 0;
+        for (Neuron n : neuronSet) {
+            for (int j = 0; j < nextNodesNum; j++) {
+                setWeight(counter * nextNodesNum + j, n.getWeight(j));
+            }
+            biases[counter] = n.getBias();
+            values[counter] = n.getVal();
+            counter++;
+        }
+    }
+
+    /**
+     * Builds a layer directly around existing weight and bias arrays. The arrays
+     * are used as they are, not copied
+     *
+     * @param nodesNum     the amount of neurons in this layer
+     * @param nextNodesNum the amount of neurons in the next layer
+     * @param weights      the row-major weight matrix, nodesNum * nextNodesNum
+     *                     long
+     * @param biases       the biases of this layer, nodesNum long
+     * @param af           the activation function of this layer
+     */
+    public Layer(int nodesNum, int nextNodesNum, double[] weights, double[] biases, ActivationFunction af) {
+        if (weights.length != nodesNum * nextNodesNum || biases.length != nodesNum) {
+            throw new IllegalArgumentException("Weight and bias arrays do not match a " + nodesNum + " by "
+                    + nextNodesNum + " layer");
+        }
+        this.nodesNum = nodesNum;
+        this.nextNodesNum = nextNodesNum;
+        this.af = af;
+        allocate(weights, null, biases);
+    }
+
+    /**
+     * Builds a single precision layer directly around existing weight and bias
+     * arrays. The arrays are used as they are, not copied
+     *
+     * @param nodesNum     the amount of neurons in this layer
+     * @param nextNodesNum the amount of neurons in the next layer
+     * @param weights      the row-major weight matrix, nodesNum * nextNodesNum
+     *                     long
+     * @param biases       the biases of this layer, nodesNum long
+     * @param af           the activation function of this layer
+     */
+    public Layer(int nodesNum, int nextNodesNum, float[] weights, double[] biases, ActivationFunction af) {
+        if (weights.length != nodesNum * nextNodesNum || biases.length != nodesNum) {
+            throw new IllegalArgumentException("Weight and bias arrays do not match a " + nodesNum + " by "
+                    + nextNodesNum + " layer");
+        }
+        this.nodesNum = nodesNum;
         this.nextNodesNum = nextNodesNum;
+        this.af = af;
+        this.precision = Precision.FLOAT;
+        allocate(null, weights, biases);
     }
 
+    private void allocate() {
+        if (precision == Precision.FLOAT) {
+            allocate(null, new float[nodesNum * nextNodesNum], new double[nodesNum]);
+        } else {
+            allocate(new double[nodesNum * nextNodesNum], null, new double[nodesNum]);
+        }
+    }
+
+    private void allocate(double[] weights, float[] floatWeights, double[] biases) {
+        this.weights = weights;
+        this.floatWeights = floatWeights;
+        this.biases = biases;
+        values = new double[nodesNum];
+        rawValues = new double[nodesNum];
+        dWSum = new double[nodesNum * nextNodesNum];
+        dBSum = new double[nodesNum];
+        dWCount = 0;
+        dBCount = 0;
+        stateOptions = null;
+        neuronQueue.clear();
+        for (int i = 0; i < nodesNum; i++) {
+            if (floatWeights != null) {
+                neuronQueue.add(new Neuron(floatWeights, nextNodesNum, biases, values, i));
+            } else {
+                neuronQueue.add(new Neuron(weights, nextNodesNum, biases, values, i));
+            }
+        }
+    }
+
+    private void setWeight(int index, double w) {
+        if (floatWeights != null) {
+            floatWeights[index] = (float) w;
+        } else {
+            weights[index] = w;
+        }
+    }
+
+    private double getWeight(int index) {
+        return floatWeights != null ? floatWeights[index] : weights[index];
+    }
+
+    /**
+     * Returns views onto the neurons of this layer. Changes made through a neuron
+     * are made to this layer
+     *
+     * @return the neurons of this layer
+     */
     public Queue<Neuron> getNeurons() {
         return neuronQueue;
     }
 
+    public int size() {
+        return nodesNum;
+    }
+
+    public Precision getPrecision() {
+        return precision;
+    }
+
     /**
-     * Returns all of the values of the neurons in this layer as a double array
-     * (vector)
+     * @return the weights of a double precision layer, or null for a single
+     *         precision layer
+     */
+    double[] getWeightArray() {
+        return weights;
+    }
+
+    /**
+     * @return the weights of a single precision layer, or null for a double
+     *         precision layer
+     */
+    float[] getFloatWeightArray() {
+        return floatWeights;
+    }
+
+    /**
+     * Returns a copy of the weights of this layer in row-major order, widened to
+     * doubles if the layer is single precision
+     *
+     * @return the weights of this layer
+     */
+    public double[] getWeightsAsVector() {
+        if (floatWeights == null) {
+            return weights.clone();
+        }
+        double[] ret_val = new double[floatWeights.length];
+        for (int i = 0; i < ret_val.length; i++) {
+            ret_val[i] = floatWeights[i];
+        }
+        return ret_val;
+    }
+
+    double[] getBiasArray() {
+        return biases;
+    }
+
+    double[] getValueArray() {
+        return values;
+    }
+
+    /**
+     * @return the values of this layer before they were activated, as computed by
+     *         the last call to activateLayer on the previous layer
+     */
+    double[] getRawValueArray() {
+        return rawValues;
+    }
+
+    double[] getWeightDeltaSums() {
+        return dWSum;
+    }
+
+    double[] getBiasDeltaSums() {
+        return dBSum;
+    }
+
+    /**
+     * Records how many training examples were added directly to the running totals
+     * returned by getWeightDeltaSums and getBiasDeltaSums
+     *
+     * @param weightSamples the amount of examples added to the weight totals
+     * @param biasSamples   the amount of examples added to the bias totals
+     */
+    void addSampleCounts(int weightSamples, int biasSamples) {
+        dWCount += weightSamples;
+        dBCount += biasSamples;
+    }
+
+    /**
+     * Adds running totals of weight and bias changes gathered somewhere else (for
+     * example by a training thread) to the running totals of this layer
+     *
+     * @param dW            summed weight changes, laid out like the weights
+     * @param dB            summed bias changes
+     * @param weightSamples the amount of examples summed into dW
+     * @param biasSamples   the amount of examples summed into dB
+     */
+    void addDeltaSums(double[] dW, double[] dB, int weightSamples, int biasSamples) {
+        Util.addVector(dWSum, dW);
+        Util.addVector(dBSum, dB);
+        addSampleCounts(weightSamples, biasSamples);
+    }
+
+    /**
+     * @return a layer with a copy of the weights, biases and activation function
+     *         of this layer, in the same precision
+     */
+    Layer copy() {
+        Layer ret_val = floatWeights != null
+                ? new Layer(nodesNum, nextNodesNum, floatWeights.clone(), biases.clone(), af)
+                : new Layer(nodesNum, nextNodesNum, weights.clone(), biases.clone(), af);
+        ret_val.pruned = pruned == null ? null : pruned.clone();
+        ret_val.prunedCount = prunedCount;
+        return ret_val;
+    }
+
+    /**
+     * Prunes every weight whose magnitude is below a threshold. Pruned weights
+     * are set to zero and kept at zero by later calls to adjustWB, so the layer
+     * can be trained further (fine-tuned) without them growing back
      * 
-     * @return the double[] of values of the neurons from this layer
+     * @param threshold the magnitude below which weights are pruned
+     * @return the amount of weights pruned by this call
      */
-    public double[] getValuesAsVector() {
-        double[] ret_val = new double[neuronQueue.size()];
-        int counter = 0;
-        for (Neuron n : neuronQueue) {
-            ret_val[counter] = n.getVal();
-            counter++;
+    int prune(double threshold) {
+        int ret_val = 0;
+        for (int i = 0; i < nodesNum * nextNodesNum; i++) {
+            if (Math.abs(getWeight(i)) < threshold && !isPruned(i)) {
+                prune(i);
+                ret_val++;
+            }
         }
         return ret_val;
     }
 
     /**
-     * Returns all of the weights per neuron in this layer as a 2D double array
-     * (matrix)
+     * Prunes the weights with the smallest magnitudes until the given fraction of
+     * this layer's weights is pruned, keeping the largest (1 - sparsity) weights
      * 
+     * @param sparsity the fraction of weights to prune, 0.0 - 1.0
+     * @return the amount of weights pruned by this call
+     * @throws IllegalArgumentException if sparsity is not between 0 and 1
+     */
+    int pruneToSparsity(double sparsity) {
+        checkSparsity(sparsity);
+        int total = nodesNum * nextNodesNum;
+        int target = (int) Math.round(sparsity * total);
+        int before = prunedCount;
+        if (target <= before) {
+            return 0;
+        }
+        double[] magnitudes = new double[total];
+        for (int i = 0; i < total; i++) {
+            magnitudes[i] = Math.abs(getWeight(i));
+        }
+        double[] sorted = magnitudes.clone();
+        Arrays.sort(sorted);
+        double threshold = sorted[target - 1];
+        prune(threshold);
+        // Weights equal to the threshold are pruned until the target is reached
+        for (int i = 0; i < total && prunedCount < target; i++) {
+            if (magnitudes[i] == threshold && !isPruned(i)) {
+                prune(i);
+            }
+        }
+        return prunedCount - before;
+    }
+
+    static void checkSparsity(double sparsity) {
+        if (!(sparsity >= 0 && sparsity <= 1)) {
+            throw new IllegalArgumentException("Sparsity must be between 0 and 1, was " + sparsity);
+        }
+    }
+
+    /**
+     * Marks every weight that is exactly zero as pruned, so that it stays zero
+     * during further training. Pruned weights are saved as zeros, so this restores
+     * the pruning of a layer read back from a save file
+     * 
+     * @return the amount of weights newly marked as pruned
+     */
+    public int pruneZeros() {
+        int ret_val = 0;
+        for (int i = 0; i < nodesNum * nextNodesNum; i++) {
+            if (getWeight(i) == 0 && !isPruned(i)) {
+                prune(i);
+                ret_val++;
+            }
+        }
+        return ret_val;
+    }
+
+    private void prune(int index) {
+        if (pruned == null) {
+            pruned = new boolean[nodesNum * nextNodesNum];
+        }
+        pruned[index] = true;
+        prunedCount++;
+        setWeight(index, 0);
+    }
+
+    private boolean isPruned(int index) {
+        return pruned != null && pruned[index];
+    }
+
+    /**
+     * @return the amount of weights in this layer that have been pruned
+     */
+    int getPrunedCount() {
+        return prunedCount;
+    }
+
+    /**
+     * @return which weights of this layer have been pruned, or null if none have
+     */
+    boolean[] getPrunedMask() {
+        return pruned;
+    }
+
+    /**
+     * @param mask  which weights of this layer have been pruned, or null if none
+     *              have. Used as it is, not copied
+     * @param count the amount of true entries in the mask
+     */
+    void setPrunedMask(boolean[] mask, int count) {
+        pruned = mask;
+        prunedCount = count;
+    }
+
+    /**
+     * @return the amount of weights in this layer that are not zero
+     */
+    int countNonZeroWeights() {
+        int ret_val = 0;
+        for (int i = 0; i < nodesNum * nextNodesNum; i++) {
+            if (getWeight(i) != 0) {
+                ret_val++;
+            }
+        }
+        return ret_val;
+    }
+
+    /**
+     * Returns all of the values of the neurons in this layer as a double array
+     * (vector)
+     *
+     * @return the double[] of values of the neurons from this layer
+     */
+    public double[] getValuesAsVector() {
+        return values.clone();
+    }
+
+    /**
+     * Returns a copy of all of the weights per neuron in this layer as a 2D double
+     * array (matrix)
+     *
      * @return the double[][] of weights. Rows represent neuron weight vectors and
      *         each element is a specific weight intended for the connection of a
      *         neuron from one layer to the next
      */
     public double[][] getWeightsAsMatrix() {
-        double[][] ret_val = new double[neuronQueue.size()][];
-        int counter = 0;
-        for (Neuron n : neuronQueue) {
-            ret_val[counter] = n.getWeights();
-            counter++;
+        double[][] ret_val = new double[nodesNum][nextNodesNum];
+        for (int i = 0; i < nodesNum; i++) {
+            for (int j = 0; j < nextNodesNum; j++) {
+                ret_val[i][j] = getWeight(i * nextNodesNum + j);
+            }
         }
         return ret_val;
     }
 
+    /**
+     * Changes the amount of neurons in the next layer. Since this changes the shape
+     * of the weight matrix, all weights of this layer are reset to zero and none
+     * of them are pruned anymore
+     *
+     * @param nextNodesNum the amount of neurons in the next layer
+     */
     public void setNextNodesNum(int nextNodesNum) {
+        if (this.nextNodesNum == nextNodesNum) {
+            return;
+        }
+        double[] oldBiases = biases;
+        double[] oldValues = values;
+        double[] oldRawValues = rawValues;
         this.nextNodesNum = nextNodesNum;
+        allocate();
+        pruned = null;
+        prunedCount = 0;
+        System.arraycopy(oldBiases, 0, biases, 0, nodesNum);
+        System.arraycopy(oldValues, 0, values, 0, nodesNum);
+        System.arraycopy(oldRawValues, 0, rawValues, 0, nodesNum);
     }
 
     public int getNextNodesNum() {
@@ -95,98 +524,178 @@ public class Layer {
      * size of the vectors within the weight matrix of the current layer match up
      * with the amount of Neurons in the next layer. The values of the next layer is
      * determined by a function of the weights and activations of the previous layer
-     * and the biases of the next one.
-     * 
+     * and the biases of the next one. The values of the next layer before
+     * activation are kept for backpropagation.
+     *
      * @param nextLayer the layer who's values are edited
      */
     public void activateLayer(Layer nextLayer) {
-        int counter = 0;
-        for (Neuron b : nextLayer.getNeurons()) {
-            double sum = 0;
-            for (Neuron a : this.neuronQueue) {
-                sum += (a.getVal() * (a.getWeights()[counter]));
-            }
-            counter++;
-            sum = af.getFunction().calculateOriginal(sum + b.getBias());
-            b.setVal(sum);
+        activate(values, nextLayer, nextLayer.rawValues, nextLayer.values);
+    }
+
+    /**
+     * Same as activateLayer, but reads the activations of this layer from "in" and
+     * writes the values of the next layer to "z" and "out" instead of using the
+     * values stored in the layers
+     *
+     * @param in        the activations of this layer
+     * @param nextLayer the layer whose biases are used
+     * @param z         the array the values of the next layer before activation
+     *                  are written to
+     * @param out       the array the activations of the next layer are written to
+     */
+    void activate(double[] in, Layer nextLayer, double[] z, double[] out) {
+        if (floatWeights != null) {
+            Util.forwardLayer(in, floatWeights, nodesNum, nextNodesNum, nextLayer.biases, af, z, out);
+        } else {
+            Util.forwardLayer(in, weights, nodesNum, nextNodesNum, nextLayer.biases, af, z, out);
+        }
+    }
+
+    /**
+     * Calculates the partial derivative of the cost with respect to the
+     * activations of this layer from dCdz of the next layer, reading the weights
+     * in place
+     *
+     * @param dCdz the partial derivative of the cost with respect to the raw
+     *             activations of the next layer
+     * @param out  the array the result is written to, one element per neuron
+     */
+    void backpropagate(double[] dCdz, double[] out) {
+        if (floatWeights != null) {
+            Util.calculatedCda(floatWeights, nextNodesNum, dCdz, out);
+        } else {
+            Util.calculatedCda(weights, nextNodesNum, dCdz, out);
+        }
+    }
+
+    /**
+     * The batched version of activateLayer. Uses the given activations of this
+     * layer (one row per sample) to compute the activations of the next layer for
+     * every sample. Unlike activateLayer, the values stored in the layers are
+     * neither read nor changed
+     *
+     * @param in        the activations of this layer, nodesNum values per sample
+     * @param batchSize the amount of samples in "in"
+     * @param nextLayer the layer whose biases are used
+     * @param out       the array the activations of the next layer are written
+     *                  to, nextNodesNum values per sample
+     */
+    public void activateBatch(double[] in, int batchSize, Layer nextLayer, double[] out) {
+        if (floatWeights != null) {
+            Util.forwardBatch(in, batchSize, floatWeights, nodesNum, nextNodesNum, nextLayer.biases, af, out);
+        } else {
+            Util.forwardBatch(in, batchSize, weights, nodesNum, nextNodesNum, nextLayer.biases, af, out);
         }
     }
 
     /**
      * Adds the weight matrix changes calculated by backpropagation to a running
      * total
-     * 
+     *
      * @param dW the changes to the weight matrix to be added
      */
     public void addWeightDeltas(double[][] dW) {
-        if (dWSet.isEmpty()) {
-            matrixDims[0] = dW.length;
-            matrixDims[1] = dW[0].length;
+        for (int i = 0; i < dW.length; i++) {
+            int row = i * nextNodesNum;
+            for (int j = 0; j < nextNodesNum; j++) {
+                dWSum[row + j] += dW[i][j];
+            }
+        }
+        dWCount++;
+    }
+
+    /**
+     * Adds the weight matrix changes calculated by backpropagation to a running
+     * total
+     *
+     * @param dW the changes to the weight matrix to be added, in the same row-major
+     *           order as the weights of this layer
+     */
+    public void addWeightDeltas(double[] dW) {
+        for (int i = 0; i < dW.length; i++) {
+            dWSum[i] += dW[i];
         }
-        dWSet.add(dW);
-        hasWeights = true;
+        dWCount++;
+    }
+
+    /**
+     * Adds the weight matrix changes of a single training example to the running
+     * total without building the matrix. The change to weight [i][j] is the value
+     * of neuron i of this layer multiplied by dCdz[j] of the next layer
+     *
+     * @param dCdz the partial derivative of the cost with respect to the raw
+     *             activations of the next layer
+     */
+    public void addWeightDeltasFromValues(double[] dCdz) {
+        Util.addOuterProduct(dWSum, values, dCdz);
+        dWCount++;
     }
 
     /**
      * Adds the bias matrix changes calculated by backpropagation to a running total
-     * 
+     *
      * @param dB the changes to the bias matrix to be added
      */
     public void addBiasDeltas(double[] dB) {
-        dBSet.add(dB);
-        hasBiases = true;
+        for (int i = 0; i < dB.length; i++) {
+            dBSum[i] += dB[i];
+        }
+        dBCount++;
     }
 
     /**
-     * Takes the running totals of the dW and dB sets and averages them. This
-     * average (multiplied by a constant that is the learning rate) is then used to
-     * affect the weights and biases of this layer
+     * Takes the running totals of the weight and bias changes and averages them.
+     * This average (multiplied by a constant that is the learning rate) is then
+     * used to affect the weights and biases of this layer. The running totals are
+     * reset afterwards. Uses plain gradient descent with the learning rate and L2
+     * regularization constant found in Constants
+     * 
+     * @see Constants
      */
     public void adjustWB() {
-        double[][] dW = new double[matrixDims[0]][matrixDims[1]];
-        for (double[][] a : dWSet) {
-            for (int i = 0; i < a.length; i++) {
-                for (int j = 0; j < a[i].length; j++) {
-                    dW[i][j] += a[i][j];
-                }
-            }
-        }
-        for (int i = 0; i < dW.length; i++) {
-            for (int j = 0; j < dW[i].length; j++) {
-                dW[i][j] /= dWSet.size();
-            }
-        }
+        adjustWB(DEFAULT_OPTIMIZER);
+    }
 
-        double[] dB = new double[neuronQueue.size()];
-        for (double[] a : dBSet) {
-            for (int i = 0; i < a.length; i++) {
-                dB[i] += a[i];
-            }
+    /**
+     * Takes the running totals of the weight and bias changes and lets an
+     * optimizer change the weights and biases of this layer with them, in a
+     * single pass over each. The running totals are reset afterwards. The state
+     * the optimizer keeps between updates is stored in this layer and starts over
+     * when a different kind of optimizer is used
+     * 
+     * @param o the optimizer to update with
+     */
+    public void adjustWB(Optimizer o) {
+        if (dBCount == 0 && dWCount == 0) {
+            return;
         }
-        for (int i = 0; i < dB.length; i++) {
-            dB[i] /= dBSet.size();
+        if (stateOptions != o.getOptions()) {
+            stateOptions = o.getOptions();
+            weightState = new double[o.getStateSize() * dWSum.length];
+            biasState = new double[o.getStateSize() * nodesNum];
+            updates = 0;
         }
-        int counter = 0;
-        if (hasBiases) {
-            for (Neuron n : neuronQueue) {
-                n.setBias(n.getBias() + (dB[counter] * Constants.learningRate));
-                counter++;
-            }
+        updates++;
+        if (dBCount > 0) {
+            o.updateBiases(biases, dBSum, dBCount, biasState, updates);
+            dBCount = 0;
         }
-        counter = 0;
-        if (hasWeights) {
-            dW = Util.l2RegularizeMatrix(dW); // L2 Regularization
-            for (Neuron n : neuronQueue) {
-                for (int i = 0; i < dW[counter].length; i++) {
-                    n.setWeight(i, n.getWeights()[i] - (dW[counter][i] * Constants.learningRate));
+        if (dWCount > 0) {
+            if (floatWeights != null) {
+                o.updateWeights(floatWeights, dWSum, dWCount, weightState, updates);
+            } else {
+                o.updateWeights(weights, dWSum, dWCount, weightState, updates);
+            }
+            if (pruned != null) {
+                for (int i = 0; i < pruned.length; i++) {
+                    if (pruned[i]) {
+                        setWeight(i, 0);
+                    }
                 }
-                counter++;
             }
+            dWCount = 0;
         }
-        dWSet.clear();
-        dBSet.clear();
-        hasWeights = false;
-        hasBiases = false;
     }
 
     @Override
@@ -197,4 +706,4 @@ public class Layer {
         }
         return ret_val + "\n";
     }
-}
\ No newline at end of file
+}
@@ -3,18 +3,23 @@ package NetworkClasses;
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.Writer;
 import java.util.Arrays;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.Queue;
 import java.util.Random;
-import java.util.Stack;
+import java.util.concurrent.CopyOnWriteArrayList;
 
+import DataClasses.DataSource;
 import Exceptions.TooFewLayersException;
-import Other.Util;
+import Other.Constants;
 import Other.FunctionClasses.Activation.ActivationFunction;
 import Other.FunctionClasses.Activation.ActivationOptions;
 import Other.FunctionClasses.Cost.CostFunction;
 import Other.FunctionClasses.Cost.CostOptions;
+import Other.FunctionClasses.Optimizer.Optimizer;
+import Other.FunctionClasses.Optimizer.OptimizerOptions;
 
 public class Network {
 
@@ -22,23 +27,97 @@ public class Network {
     private Layer inputLayer;
     private int numLayers;
     private CostFunction cf;
+    private Optimizer optimizer = new Optimizer(OptimizerOptions.SGD);
+    private final List<TrainingListener> listeners = new CopyOnWriteArrayList<>();
+    private final TrainingMetrics metrics = new TrainingMetrics();
+    // Backpropagation workspace reused by every call to learnFrom
+    private Layer[] layers;
+    private double[][] rawValues;
+    private double[][] values;
+    private double[][] dWSums;
+    private double[][] dBSums;
+    private double[][] dCda;
+    private double[][] dCdz;
 
     public Network(int[] layerNodeCounts, ActivationOptions[] afArr, CostOptions costOp) throws TooFewLayersException {
+        this(layerNodeCounts, afArr, costOp, Precision.DOUBLE, new Random());
+    }
+
+    /**
+     * Creates a network whose weights and biases are randomized from the given
+     * seed, so that the same seed always produces the same network
+     * 
+     * @param layerNodeCounts the amount of neurons in each layer
+     * @param afArr           the activation function of each layer
+     * @param costOp          the cost function of the network
+     * @param seed            the seed for the random weights and biases
+     * @throws TooFewLayersException if fewer than two layers are given
+     */
+    public Network(int[] layerNodeCounts, ActivationOptions[] afArr, CostOptions costOp, long seed)
+            throws TooFewLayersException {
+        this(layerNodeCounts, afArr, costOp, Precision.DOUBLE, new Random(seed));
+    }
+
+    /**
+     * Creates a network whose weights are stored with the given precision
+     * 
+     * @param layerNodeCounts the amount of neurons in each layer
+     * @param afArr           the activation function of each layer
+     * @param costOp          the cost function of the network
+     * @param precision       how the weights of every layer are stored
+     * @throws TooFewLayersException if fewer than two layers are given
+     * @see Precision
+     */
+    public Network(int[] layerNodeCounts, ActivationOptions[] afArr, CostOptions costOp, Precision precision)
+            throws TooFewLayersException {
+        this(layerNodeCounts, afArr, costOp, precision, new Random());
+    }
+
+    /**
+     * Creates a network whose weights are stored with the given precision and
+     * whose weights and biases are randomized from the given seed
+     * 
+     * @param layerNodeCounts the amount of neurons in each layer
+     * @param afArr           the activation function of each layer
+     * @param costOp          the cost function of the network
+     * @param precision       how the weights of every layer are stored
+     * @param seed            the seed for the random weights and biases
+     * @throws TooFewLayersException if fewer than two layers are given
+     */
+    public Network(int[] layerNodeCounts, ActivationOptions[] afArr, CostOptions costOp, Precision precision,
+            long seed) throws TooFewLayersException {
+        this(layerNodeCounts, afArr, costOp, precision, new Random(seed));
+    }
+
+    private Network(int[] layerNodeCounts, ActivationOptions[] afArr, CostOptions costOp, Precision precision,
+            Random r) throws TooFewLayersException {
         numLayers = layerNodeCounts.length;
         if (numLayers < 2) {
             throw new TooFewLayersException();
         }
-        for (int i = 0; i < layerNodeCounts.length - 1; i++) {
-            int currentNodeAmount = layerNodeCounts[i];
-            int nextNodeAmount = layerNodeCounts[i + 1];
-            layerQueue.add(new Layer(currentNodeAmount, nextNodeAmount, new ActivationFunction(afArr[i])));
+        checkActivations(afArr);
+        for (int i = 0; i < layerNodeCounts.length; i++) {
+            int nextNodeAmount = i < layerNodeCounts.length - 1 ? layerNodeCounts[i + 1] : 0;
+            layerQueue.add(new Layer(layerNodeCounts[i], nextNodeAmount, new ActivationFunction(afArr[i]), r,
+                    precision));
         }
-        layerQueue.add(new Layer(layerNodeCounts[layerNodeCounts.length - 1],
-                new ActivationFunction(afArr[layerNodeCounts.length - 1])));
         inputLayer = layerQueue.peek();
         cf = new CostFunction(costOp);
     }
 
+    /**
+     * The activation function of a layer produces the values of the next layer, so
+     * the last layer's is never used. SOFTMAX there almost certainly means the
+     * output layer was meant to be a softmax, which takes SOFTMAX on the
+     * second-to-last layer instead
+     */
+    private static void checkActivations(ActivationOptions[] afArr) {
+        if (afArr[afArr.length - 1] == ActivationOptions.SOFTMAX) {
+            throw new IllegalArgumentException("SOFTMAX on the last layer has no effect. The activation function of"
+                    + " layer i produces layer i + 1, so put SOFTMAX on the second-to-last layer");
+        }
+    }
+
     public Network(Queue<Layer> layerQueue, CostFunction cf) throws TooFewLayersException {
         if (layerQueue.size() < 2) {
             throw new TooFewLayersException();
@@ -93,15 +172,7 @@ public class Network {
      * vector of activations that is the ultimate result of this network
      */
     public void pulse() {
-        Layer currentLayer = null;
-        Layer nextLayer = null;
-        for (int i = 0; i < numLayers - 1; i++) {
-            currentLayer = layerQueue.poll();
-            nextLayer = layerQueue.peek();
-            currentLayer.activateLayer(nextLayer);
-            layerQueue.add(currentLayer);
-        }
-        layerQueue.add(layerQueue.poll());
+        activateLayers();
     }
 
     /**
@@ -113,22 +184,7 @@ public class Network {
      * vector will also be returned as a double[]
      */
     public double[] pulseWithResult() {
-        Layer currentLayer = null;
-        Layer nextLayer = null;
-        for (int i = 0; i < numLayers - 1; i++) {
-            currentLayer = layerQueue.poll();
-            nextLayer = layerQueue.peek();
-            currentLayer.activateLayer(nextLayer);
-            layerQueue.add(currentLayer);
-        }
-        layerQueue.add(layerQueue.poll());
-        double[] ret_val = new double[nextLayer.getNeurons().size()];
-        int counter = 0;
-        for (Neuron n : nextLayer.getNeurons()) {
-            ret_val[counter] = n.getVal();
-            counter++;
-        }
-        return ret_val;
+        return activateLayers().getValuesAsVector();
     }
 
     /**
@@ -141,25 +197,236 @@ public class Network {
      * is the ultimate result of this network
      */
     public void pulseWithInput(double[] initialValues) {
-        int counter = 0;
-        for (Neuron n : inputLayer.getNeurons()) {
-            try {
-                n.setVal(initialValues[counter]);
-                counter++;
-            } catch (ArrayIndexOutOfBoundsException e) {
-                e.printStackTrace();
-                System.err.println("Too many initial values for base network layer.");
+        initializeNetwork(initialValues);
+        activateLayers();
+    }
+
+    /**
+     * Activates every layer from the input layer to the output layer in order,
+     * without moving the layers around in the layer queue
+     * 
+     * @return the output layer
+     */
+    private Layer activateLayers() {
+        boolean instrumented = isInstrumented();
+        long start = 0;
+        if (instrumented) {
+            metrics.begin();
+            start = System.nanoTime();
+        }
+        Layer currentLayer = null;
+        for (Layer nextLayer : layerQueue) {
+            if (currentLayer != null) {
+                currentLayer.activateLayer(nextLayer);
             }
+            currentLayer = nextLayer;
+        }
+        if (instrumented) {
+            metrics.addForward(System.nanoTime() - start);
+        }
+        return currentLayer;
+    }
+
+    /**
+     * Pulses a whole batch of inputs through the network at once and returns the
+     * result for every input. Each layer is applied to the entire batch as one
+     * matrix-matrix product, which is much faster than pulsing the inputs one by
+     * one. The values held by the neurons of the network are not changed
+     * 
+     * @param inputs the inputs to pulse, one row per sample. Every row should be
+     *               the same length as the number of neurons in the initial layer
+     * @return the output of the network for every input, in the same order
+     */
+    public double[][] predictBatch(double[][] inputs) {
+        int inputSize = inputLayer.size();
+        double[] flat = new double[inputs.length * inputSize];
+        for (int i = 0; i < inputs.length; i++) {
+            System.arraycopy(inputs[i], 0, flat, i * inputSize, inputSize);
         }
+        double[] result = predictBatch(flat, inputs.length);
+        int outputSize = result.length / Math.max(inputs.length, 1);
+        double[][] ret_val = new double[inputs.length][];
+        for (int i = 0; i < inputs.length; i++) {
+            ret_val[i] = Arrays.copyOfRange(result, i * outputSize, (i + 1) * outputSize);
+        }
+        return ret_val;
+    }
+
+    /**
+     * Pulses a whole batch of inputs stored back to back in a single array through
+     * the network at once. See predictBatch(double[][])
+     * 
+     * @param inputs    the inputs to pulse, the values of sample k starting at
+     *                  index k * (neurons in the initial layer)
+     * @param batchSize the amount of samples in "inputs"
+     * @return the outputs of the network stored back to back in the same way
+     */
+    public double[] predictBatch(double[] inputs, int batchSize) {
+        double[] current = inputs;
         Layer currentLayer = null;
-        Layer nextLayer = null;
-        for (int i = 0; i < numLayers - 1; i++) {
-            currentLayer = layerQueue.poll();
-            nextLayer = layerQueue.peek();
-            currentLayer.activateLayer(nextLayer);
-            layerQueue.add(currentLayer);
+        for (Layer nextLayer : layerQueue) {
+            if (currentLayer != null) {
+                double[] next = new double[batchSize * nextLayer.size()];
+                currentLayer.activateBatch(current, batchSize, nextLayer, next);
+                current = next;
+            }
+            currentLayer = nextLayer;
+        }
+        return current;
+    }
+
+    /**
+     * Creates a read-only copy of this network's current weights and biases that
+     * can be used for inference by many threads at once
+     * 
+     * @return the compiled network
+     * @see CompiledNetwork
+     */
+    public CompiledNetwork compile() {
+        return new CompiledNetwork(this);
+    }
+
+    /**
+     * Prunes every weight in this network whose magnitude is below a threshold.
+     * Pruned weights are set to zero and stay zero when the network is trained
+     * further, so the remaining weights can be fine-tuned to make up for the
+     * pruned ones
+     * 
+     * @param threshold the magnitude below which weights are pruned
+     * @return the amount of weights pruned
+     * @see #compileSparse()
+     */
+    public int prune(double threshold) {
+        int ret_val = 0;
+        for (Layer l : layerQueue) {
+            ret_val += l.prune(threshold);
+        }
+        return ret_val;
+    }
+
+    /**
+     * Prunes the weights with the smallest magnitudes in every layer, so that each
+     * layer keeps only its largest (1 - sparsity) weights. Pruned weights are set
+     * to zero and stay zero when the network is trained further
+     * 
+     * @param sparsity the fraction of every layer's weights to prune, 0.0 - 1.0
+     * @return the amount of weights pruned
+     * @throws IllegalArgumentException if sparsity is not between 0 and 1
+     * @see #compileSparse()
+     */
+    public int pruneToSparsity(double sparsity) {
+        Layer.checkSparsity(sparsity);
+        int ret_val = 0;
+        for (Layer l : layerQueue) {
+            ret_val += l.pruneToSparsity(sparsity);
+        }
+        return ret_val;
+    }
+
+    /**
+     * @return the fraction of this network's weights that have been pruned, 0.0 -
+     *         1.0
+     */
+    public double getSparsity() {
+        long total = 0;
+        long pruned = 0;
+        for (Layer l : layerQueue) {
+            total += (long) l.size() * l.getNextNodesNum();
+            pruned += l.getPrunedCount();
+        }
+        return total == 0 ? 0 : (double) pruned / total;
+    }
+
+    /**
+     * Creates a copy of this network without the hidden neurons that make no
+     * difference to its outputs: neurons whose activation is constant over the
+     * calibration examples or whose outgoing weights are zero (their constant
+     * contribution is moved into the next layer's biases), and neurons whose
+     * activations duplicate another neuron of the same layer (their outgoing
+     * weights are added to that neuron's). The copy has narrower layers, so it is
+     * faster to pulse and train, and it is saved and read like any other network
+     * 
+     * @param calibration the examples to record the activations with, read from
+     *                    the source's current position
+     * @param examples    the largest amount of examples to record
+     * @param tolerance   the largest amount a removed neuron may change any value
+     *                    going into the next layer, for any calibration example
+     * @return the smaller network. This network is not changed
+     * @see NeuronPruner
+     */
+    public Network pruneNeurons(DataSource calibration, int examples, double tolerance) {
+        Layer[] layers = layerQueue.toArray(new Layer[0]);
+        try {
+            return new NeuronPruner(layers, calibration, examples, tolerance).prune(this);
+        } catch (TooFewLayersException e) {
+            throw new IllegalStateException(e);
         }
-        layerQueue.add(layerQueue.poll());
+    }
+
+    /**
+     * Creates a read-only copy of this network that only keeps its non-zero
+     * weights, for fast inference after pruning
+     * 
+     * @return the sparse network
+     * @see SparseNetwork
+     */
+    public SparseNetwork compileSparse() {
+        return new SparseNetwork(this);
+    }
+
+    /**
+     * Creates a copy of this network's current weights and biases with 8 bit
+     * weights for inference. The scales of the activations are chosen by pulsing
+     * calibration examples through this network, which should resemble the
+     * inputs the quantized network will see
+     * 
+     * @param calibration the examples to calibrate with, read from the source's
+     *                    current position
+     * @param examples    the largest amount of examples to calibrate with
+     * @return the quantized network
+     * @see QuantizedNetwork
+     */
+    public QuantizedNetwork quantize(DataSource calibration, int examples) {
+        return new QuantizedNetwork(this, calibration, examples);
+    }
+
+    /**
+     * Creates a read-only predictor specialized to this network's layer sizes and
+     * activation functions by generating and compiling a class for it at runtime.
+     * This takes a few hundred milliseconds, after which every pulse runs without
+     * any of the per-call overhead of a general network, which pays off for
+     * small networks that are pulsed very often. Falls back to a CompiledNetwork
+     * if the running Java has no compiler (e.g. a JRE) or the class could not be
+     * generated
+     * 
+     * @return the predictor, holding a copy of this network's current weights
+     *         and biases
+     * @see PredictorGenerator
+     */
+    public Predictor compilePredictor() {
+        if (PredictorGenerator.isAvailable()) {
+            try {
+                return PredictorGenerator.generate(this);
+            } catch (ReflectiveOperationException | RuntimeException e) {
+                e.printStackTrace();
+            }
+        }
+        return compile();
+    }
+
+    /**
+     * Evaluates this network on a labelled dataset using one thread per available
+     * processor. Chunks of examples are pulsed through a compiled copy of the
+     * network with batched inference
+     * 
+     * @param data        the examples to evaluate, with one-hot expected outputs
+     * @param maxExamples the largest amount of examples to evaluate
+     * @return the loss, accuracy and confusion matrix of this network on the
+     *         examples
+     * @see CompiledNetwork#evaluate(DataSource, int, int)
+     */
+    public EvaluationResult evaluate(DataSource data, int maxExamples) {
+        return compile().evaluate(data, maxExamples, Runtime.getRuntime().availableProcessors());
     }
 
     /**
@@ -171,22 +438,52 @@ public class Network {
      *                 training example
      */
     public void learnFrom(double[] expected) {
-        Stack<Layer> stackLayers = new Stack<>();
-        for (Layer l : layerQueue) {
-            stackLayers.push(l);
+        boolean instrumented = isInstrumented();
+        long start = 0;
+        if (instrumented) {
+            metrics.begin();
+            start = System.nanoTime();
         }
-        Layer curLayer = stackLayers.pop();
-
-        double[] dCda = cf.getFunction().calculateDerivative(curLayer.getValuesAsVector(), expected);
-        do {
-            double[] dCdz = Util.calculatedCdz(curLayer.getValuesAsVector(), dCda, curLayer.getActivationFunction());
-            double[][] dCdW = Util.outerProduct(dCdz, stackLayers.peek().getValuesAsVector());
-            curLayer.addBiasDeltas(dCdz);
-            stackLayers.peek().addWeightDeltas(dCdW);
-            dCda = Util.calculatedCda(stackLayers.peek().getWeightsAsMatrix(), dCdz);
-            curLayer = stackLayers.pop();
-        } while (!stackLayers.empty());
+        bindWorkspace();
+        Backpropagation.backward(layers, cf, rawValues, values, expected, dWSums, dBSums, dCda, dCdz);
+        for (int l = 0; l < numLayers; l++) {
+            layers[l].addSampleCounts(l < numLayers - 1 ? 1 : 0, l > 0 ? 1 : 0);
+        }
+        if (instrumented) {
+            double loss = cf.calculateOutputCost(rawValues[numLayers - 1], values[numLayers - 1], expected,
+                    layers[numLayers - 2].getActivationFunction());
+            metrics.addBackward(System.nanoTime() - start, loss, 1);
+        }
+    }
 
+    /**
+     * Points the backpropagation workspace at the current arrays of every layer.
+     * The scratch arrays are only allocated the first time and again if the size
+     * of a layer has changed, so in steady state this allocates nothing
+     */
+    private void bindWorkspace() {
+        if (layers == null) {
+            layers = new Layer[numLayers];
+            rawValues = new double[numLayers][];
+            values = new double[numLayers][];
+            dWSums = new double[numLayers][];
+            dBSums = new double[numLayers][];
+            dCda = new double[numLayers][];
+            dCdz = new double[numLayers][];
+        }
+        int l = 0;
+        for (Layer layer : layerQueue) {
+            layers[l] = layer;
+            rawValues[l] = layer.getRawValueArray();
+            values[l] = layer.getValueArray();
+            dWSums[l] = layer.getWeightDeltaSums();
+            dBSums[l] = layer.getBiasDeltaSums();
+            if (dCda[l] == null || dCda[l].length != layer.size()) {
+                dCda[l] = new double[layer.size()];
+                dCdz[l] = new double[layer.size()];
+            }
+            l++;
+        }
     }
 
     /**
@@ -195,11 +492,72 @@ public class Network {
      * uses will either be mini batch or batch gradient descent
      */
     public void updateLayers() {
+        boolean instrumented = isInstrumented();
+        long start = 0;
+        if (instrumented) {
+            metrics.begin();
+            start = System.nanoTime();
+        }
         for (Layer l : layerQueue) {
-            l.adjustWB();
+            l.adjustWB(optimizer);
+        }
+        if (instrumented) {
+            metrics.finish(System.nanoTime() - start);
+            for (TrainingListener listener : listeners) {
+                listener.batchCompleted(metrics);
+            }
+            TrainingBatchEvent.commit(metrics);
+            metrics.reset();
         }
     }
 
+    /**
+     * Registers a listener that receives the metrics of every mini-batch this
+     * network is trained on. The metrics are only measured while a listener is
+     * registered or a flight recording has the NeuralNetwork.TrainingBatch event
+     * enabled, so an unobserved network pays nothing for them
+     * 
+     * @param listener the listener to add
+     * @see TrainingMetrics
+     */
+    public void addTrainingListener(TrainingListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeTrainingListener(TrainingListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * @return true if training metrics are currently being measured
+     */
+    boolean isInstrumented() {
+        return !listeners.isEmpty() || TrainingBatchEvent.isTypeEnabled();
+    }
+
+    /**
+     * @return the metrics of the mini-batch currently being trained on
+     */
+    TrainingMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Sets the optimizer (and with it the learning rate and other
+     * hyperparameters) used by updateLayers. Networks start out with plain
+     * gradient descent using the values found in Constants
+     * 
+     * @param optimizer the optimizer to train this network with
+     * @see Optimizer
+     */
+    public void setOptimizer(Optimizer optimizer) {
+        this.optimizer = optimizer;
+    }
+
+    public Optimizer getOptimizer() {
+        return optimizer;
+    }
+
     public Queue<Layer> getLayers() {
         return layerQueue;
     }
@@ -215,23 +573,7 @@ public class Network {
         try {
             f.createNewFile();
             FileWriter w = new FileWriter(f);
-            w.write(this.cf.getCo() + "\n");
-            w.write(layerQueue.size() + "\n");
-            for (Layer l : layerQueue) {
-                w.write(l.getNeurons().size() + " " + l.getNextNodesNum() + " ");
-                w.write(l.getActivationFunction().getAo() + "\n");
-                for (Neuron n : l.getNeurons()) {
-                    Arrays.stream(n.getWeights()).forEach(value -> {
-                        try {
-                            w.write(value + " ");
-                        } catch (IOException e) {
-                            e.printStackTrace();
-                        }
-                    });
-                    w.write("\n" + n.getBias() + "\n");
-                }
-            }
-            w.flush();
+            saveToFile(w);
             w.close();
             System.out.println("Saved to " + f.getAbsolutePath());
         } catch (IOException e) {
@@ -239,44 +581,95 @@ public class Network {
         }
     }
 
+    /**
+     * Writes this network's weights and biases in the text format of
+     * saveToFile(File) to a writer, without printing anything. The writer is
+     * flushed but not closed
+     * 
+     * @param w the writer the network is written to
+     * @throws IOException if the writer fails
+     */
+    public void saveToFile(Writer w) throws IOException {
+        w.write(this.cf.getCo() + "\n");
+        w.write(layerQueue.size() + "\n");
+        for (Layer l : layerQueue) {
+            w.write(l.getNeurons().size() + " " + l.getNextNodesNum() + " ");
+            w.write(l.getActivationFunction().getAo());
+            if (l.getPrecision() != Precision.DOUBLE) {
+                w.write(" " + l.getPrecision());
+            }
+            if (l.getPrunedCount() > 0) {
+                w.write(" PRUNED");
+            }
+            w.write("\n");
+            for (Neuron n : l.getNeurons()) {
+                for (double value : n.getWeights()) {
+                    w.write(value + " ");
+                }
+                w.write("\n" + n.getBias() + "\n");
+            }
+        }
+        w.flush();
+    }
+
     /**
      * Saves this network's weights and biases to a text file at a default location
-     * (Saved Networks) with time in milliseconds since epoch as the name. The
+     * (Constants.savedNetworksDirectory) with time in milliseconds since epoch as the name. The
      * formatting for the data can be found by viewing a file or taking a look at
      * the README of this project
-     * 
-     * @param f the file location where the network will be saved
      */
     public void saveToFile() {
         System.out.println("Saving...");
+        Constants.savedNetworksDirectory.mkdirs();
+        saveToFile(new File(Constants.savedNetworksDirectory, System.currentTimeMillis() + ".txt"));
+    }
+
+    /**
+     * Saves this network's weights and biases to a binary file at the location
+     * passed into this method. Binary files are much smaller and faster to read
+     * than the text files written by saveToFile. The format is described in
+     * BinaryNetworkFile
+     * 
+     * @param f the file location where the network will be saved
+     * @see BinaryNetworkFile
+     */
+    public void saveToBinaryFile(File f) {
         try {
-            File f = new File("Saved Networks\\" + System.currentTimeMillis() + ".txt");
-            f.createNewFile();
-            FileWriter w = new FileWriter(f);
-            w.write(this.cf.getCo() + "\n");
-            w.write(layerQueue.size() + "\n");
-            for (Layer l : layerQueue) {
-                w.write(l.getNeurons().size() + " " + l.getNextNodesNum() + " ");
-                w.write(l.getActivationFunction().getAo() + "\n");
-                for (Neuron n : l.getNeurons()) {
-                    Arrays.stream(n.getWeights()).forEach(value -> {
-                        try {
-                            w.write(value + " ");
-                        } catch (IOException e) {
-                            e.printStackTrace();
-                        }
-                    });
-                    w.write("\n" + n.getBias() + "\n");
-                }
-            }
-            w.flush();
-            w.close();
+            BinaryNetworkFile.write(this, f);
             System.out.println("Saved to " + f.getAbsolutePath());
         } catch (IOException e) {
             e.printStackTrace();
         }
     }
 
+    /**
+     * Creates an independent copy of this network. Only the weights, biases,
+     * activation functions, cost function and optimizer are copied, not the neuron
+     * values, any unapplied weight and bias changes or the optimizer's state
+     * 
+     * @return the copy
+     */
+    public Network copy() {
+        Queue<Layer> copiedLayers = new LinkedList<>();
+        for (Layer l : layerQueue) {
+            copiedLayers.add(l.copy());
+        }
+        try {
+            Network ret_val = new Network(copiedLayers, cf);
+            ret_val.setOptimizer(optimizer);
+            return ret_val;
+        } catch (TooFewLayersException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * @return the precision the weights of this network are stored with
+     */
+    public Precision getPrecision() {
+        return inputLayer.getPrecision();
+    }
+
     public CostFunction getCostFunction() {
         return cf;
     }
@@ -0,0 +1,85 @@
+package NetworkClasses;
+
+import java.util.LinkedList;
+import java.util.Queue;
+
+import Exceptions.TooFewLayersException;
+import Other.FunctionClasses.Activation.ActivationFunction;
+import Other.FunctionClasses.Cost.CostFunction;
+import Other.FunctionClasses.Optimizer.Optimizer;
+
+/**
+ * A copy of only the weight and bias arrays of a network. Taking one costs a
+ * single array copy per layer, while turning it back into a network also
+ * allocates the value, raw value and gradient buffers and the neurons of every
+ * layer, which is why Checkpointer and EarlyStopping take the snapshot on the
+ * training thread and rebuild the network on their background threads
+ */
+final class NetworkSnapshot {
+    private final CostFunction cf;
+    private final Optimizer optimizer;
+    private final int[] sizes;
+    private final int[] nextSizes;
+    private final ActivationFunction[] afs;
+    private final double[][] weights;
+    private final float[][] floatWeights;
+    private final double[][] biases;
+    private final boolean[][] pruned;
+    private final int[] prunedCounts;
+
+    /**
+     * Copies the weights and biases of a network. Must be called between updates
+     * of the network so that the copy is consistent
+     *
+     * @param n the network to copy
+     */
+    NetworkSnapshot(Network n) {
+        Layer[] layers = n.getLayers().toArray(new Layer[0]);
+        cf = n.getCostFunction();
+        optimizer = n.getOptimizer();
+        sizes = new int[layers.length];
+        nextSizes = new int[layers.length];
+        afs = new ActivationFunction[layers.length];
+        weights = new double[layers.length][];
+        floatWeights = new float[layers.length][];
+        biases = new double[layers.length][];
+        pruned = new boolean[layers.length][];
+        prunedCounts = new int[layers.length];
+        for (int i = 0; i < layers.length; i++) {
+            Layer l = layers[i];
+            sizes[i] = l.size();
+            nextSizes[i] = l.getNextNodesNum();
+            afs[i] = l.getActivationFunction();
+            if (l.getFloatWeightArray() != null) {
+                floatWeights[i] = l.getFloatWeightArray().clone();
+            } else {
+                weights[i] = l.getWeightArray().clone();
+            }
+            biases[i] = l.getBiasArray().clone();
+            pruned[i] = l.getPrunedMask() == null ? null : l.getPrunedMask().clone();
+            prunedCounts[i] = l.getPrunedCount();
+        }
+    }
+
+    /**
+     * @return a new network holding the copied weights and biases. The arrays of
+     *         the snapshot are handed to the network, so this may only be called
+     *         once
+     */
+    Network toNetwork() {
+        Queue<Layer> layerQueue = new LinkedList<>();
+        for (int i = 0; i < sizes.length; i++) {
+            Layer l = floatWeights[i] != null ? new Layer(sizes[i], nextSizes[i], floatWeights[i], biases[i], afs[i])
+                    : new Layer(sizes[i], nextSizes[i], weights[i], biases[i], afs[i]);
+            l.setPrunedMask(pruned[i], prunedCounts[i]);
+            layerQueue.add(l);
+        }
+        try {
+            Network ret_val = new Network(layerQueue, cf);
+            ret_val.setOptimizer(optimizer);
+            return ret_val;
+        } catch (TooFewLayersException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
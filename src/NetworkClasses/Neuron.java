@@ -5,14 +5,26 @@ import java.util.Random;
 
 import Other.Constants;
 
+/**
+ * A single neuron. Neurons that belong to a Layer are views onto that layer's
+ * contiguous weight, bias and value arrays, so reading or writing through a
+ * Neuron reads or writes the layer itself. Neurons created on their own (for
+ * example while reading a network from a file) own their storage until they
+ * are handed to a Layer, which copies them into its arrays
+ */
 public class Neuron {
     private double[] w;
-    private double b;
-    private double val = 0;
+    private float[] floatW;
+    private int offset;
+    private int length;
+    private double[] b;
+    private double[] val;
+    private int index;
+    private boolean view;
 
     /**
      * Neuron constructor
-     * 
+     *
      * @param randomize            if true, the values of the weights and biases of
      *                             this Neuron will be randomized based on the
      *                             values stated in the Constants class
@@ -23,70 +35,142 @@ public class Neuron {
      * @see Constants
      */
     public Neuron(boolean randomize, int nextLayerNeuronCount) {
-        w = new double[nextLayerNeuronCount];
+        this(nextLayerNeuronCount);
         if (randomize) {
             for (int i = 0; i < nextLayerNeuronCount; i++) {
                 w[i] = Constants.minNeuronRange
                         + ((Constants.maxNeuronRange - Constants.minNeuronRange) * (new Random().nextDouble()));
             }
-            b = Constants.minNeuronRange
+            b[0] = Constants.minNeuronRange
                     + ((Constants.maxNeuronRange - Constants.minNeuronRange) * (new Random().nextDouble()));
-        } else {
-            for (int i = 0; i < nextLayerNeuronCount; i++) {
-                w[i] = 0;
-            }
-            b = 0;
         }
     }
 
     /**
      * Neuron constructor
-     * 
+     *
      * @param randomize if true, the values of the weights and biases of this Neuron
      *                  will be randomized based on the values stated in the
      *                  Constants class
      */
     public Neuron(boolean randomize) {
+        this(0);
         if (randomize) {
-            w = new double[0];
-            b = Constants.minNeuronRange
+            b[0] = Constants.minNeuronRange
                     + (Constants.maxNeuronRange - Constants.minNeuronRange) * (new Random().nextDouble());
-        } else {
-            w = new double[0];
-            b = 0;
         }
     }
 
+    private Neuron(int nextLayerNeuronCount) {
+        w = new double[nextLayerNeuronCount];
+        length = nextLayerNeuronCount;
+        b = new double[1];
+        val = new double[1];
+    }
+
+    /**
+     * Creates a view onto row "index" of a layer's storage
+     *
+     * @param weights the layer's row-major weight array
+     * @param length  the amount of weights per neuron (neurons in the next layer)
+     * @param biases  the layer's bias array
+     * @param values  the layer's value array
+     * @param index   the position of this neuron within its layer
+     */
+    Neuron(double[] weights, int length, double[] biases, double[] values, int index) {
+        this.w = weights;
+        this.offset = index * length;
+        this.length = length;
+        this.b = biases;
+        this.val = values;
+        this.index = index;
+        this.view = true;
+    }
+
+    /**
+     * Creates a view onto row "index" of a single precision layer's storage
+     *
+     * @param weights the layer's row-major weight array
+     * @param length  the amount of weights per neuron (neurons in the next layer)
+     * @param biases  the layer's bias array
+     * @param values  the layer's value array
+     * @param index   the position of this neuron within its layer
+     */
+    Neuron(float[] weights, int length, double[] biases, double[] values, int index) {
+        this.floatW = weights;
+        this.offset = index * length;
+        this.length = length;
+        this.b = biases;
+        this.val = values;
+        this.index = index;
+        this.view = true;
+    }
+
+    /**
+     * Returns a copy of the weights of this neuron. Use setWeight or setWeights to
+     * change them
+     *
+     * @return the weights of this neuron
+     */
     public double[] getWeights() {
-        return w;
+        if (floatW != null) {
+            double[] ret_val = new double[length];
+            for (int i = 0; i < length; i++) {
+                ret_val[i] = floatW[offset + i];
+            }
+            return ret_val;
+        }
+        return Arrays.copyOfRange(w, offset, offset + length);
+    }
+
+    public double getWeight(int index) {
+        return floatW != null ? floatW[offset + index] : w[offset + index];
+    }
+
+    public int getWeightCount() {
+        return length;
     }
 
     public double getBias() {
-        return b;
+        return b[index];
     }
 
     public double getVal() {
-        return val;
+        return val[index];
     }
 
     public void setWeights(double[] w) {
-        this.w = w;
+        if (!view) {
+            this.w = w.clone();
+            this.length = w.length;
+        } else if (w.length != length) {
+            throw new IllegalArgumentException(
+                    "Expected " + length + " weights for this neuron but got " + w.length);
+        } else {
+            for (int i = 0; i < length; i++) {
+                setWeight(i, w[i]);
+            }
+        }
     }
 
     public void setWeight(int index, double w) {
-        this.w[index] = w;
+        if (floatW != null) {
+            this.floatW[offset + index] = (float) w;
+        } else {
+            this.w[offset + index] = w;
+        }
     }
 
     public void setBias(double b) {
-        this.b = b;
+        this.b[index] = b;
     }
 
     public void setVal(double val) {
-        this.val = val;
+        this.val[index] = val;
     }
 
     @Override
     public String toString() {
-        return "w: " + Arrays.toString(w) + " b: " + b + " val: " + val + " ";
+        return "w: " + Arrays.toString(getWeights()) + " b: " + getBias() + " val: " + getVal() + " ";
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,206 @@
+package NetworkClasses;
+
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.Queue;
+
+import DataClasses.DataSource;
+import Exceptions.TooFewLayersException;
+import Other.Util;
+
+/**
+ * Removes whole neurons from the hidden layers of a network. The activations of
+ * every hidden neuron are recorded over a set of calibration examples, and a
+ * neuron is removed when it makes (almost) no difference to the next layer:
+ *
+ * <ul>
+ * <li>its activation is (almost) constant, or its outgoing weights are (almost)
+ * zero. The constant part of what it sends to the next layer, its mean
+ * activation times its outgoing weights, is added to the next layer's biases
+ * <li>its activations are (almost) the same as those of another neuron of the
+ * same layer. Its outgoing weights are added to that neuron's outgoing weights
+ * </ul>
+ *
+ * Removing neuron i of a layer removes row i of that layer's weight matrix,
+ * its bias, and column i of the previous layer's weight matrix, so the result
+ * is an ordinary dense network with narrower layers
+ *
+ * @see Network#pruneNeurons(DataSource, int, double)
+ */
+final class NeuronPruner {
+    private final Layer[] layers;
+    private final double tolerance;
+    /** activations[l][k * size + i] is the activation of neuron i of layer l for example k */
+    private final double[][] activations;
+    private final int examples;
+
+    /**
+     * @param layers      the layers of the network to prune
+     * @param calibration the examples to record the activations with
+     * @param maxExamples the largest amount of examples to record
+     * @param tolerance   the largest change a removal may make to a value going
+     *                    into the next layer
+     */
+    NeuronPruner(Layer[] layers, DataSource calibration, int maxExamples, double tolerance) {
+        this.layers = layers;
+        this.tolerance = tolerance;
+        if (calibration.getInputSize() != layers[0].size()) {
+            throw new IllegalArgumentException(
+                    "The calibration examples do not match a network with " + layers[0].size() + " inputs");
+        }
+        double[][] a = new double[layers.length][];
+        double[][] recorded = new double[layers.length][];
+        for (int l = 0; l < layers.length; l++) {
+            a[l] = new double[layers[l].size()];
+            recorded[l] = new double[maxExamples * layers[l].size()];
+        }
+        double[] expected = new double[calibration.getOutputSize()];
+        int k = 0;
+        while (k < maxExamples && calibration.next(a[0], 0, expected, 0)) {
+            for (int l = 0; l < layers.length - 1; l++) {
+                Layer current = layers[l];
+                int rows = current.size();
+                int cols = current.getNextNodesNum();
+                double[] bias = layers[l + 1].getBiasArray();
+                if (current.getPrecision() == Precision.FLOAT) {
+                    Util.forwardLayer(a[l], current.getFloatWeightArray(), rows, cols, bias,
+                            current.getActivationFunction(), a[l + 1]);
+                } else {
+                    Util.forwardLayer(a[l], current.getWeightArray(), rows, cols, bias,
+                            current.getActivationFunction(), a[l + 1]);
+                }
+            }
+            for (int l = 0; l < layers.length; l++) {
+                System.arraycopy(a[l], 0, recorded[l], k * a[l].length, a[l].length);
+            }
+            k++;
+        }
+        examples = k;
+        activations = recorded;
+    }
+
+    /**
+     * @return a new network without the neurons that can be removed. The network
+     *         this pruner was made from is not changed
+     */
+    Network prune(Network original) throws TooFewLayersException {
+        int numLayers = layers.length;
+        double[][] weights = new double[numLayers][];
+        double[][] biases = new double[numLayers][];
+        int[] sizes = new int[numLayers];
+        for (int l = 0; l < numLayers; l++) {
+            weights[l] = layers[l].getWeightsAsVector();
+            biases[l] = layers[l].getBiasArray().clone();
+            sizes[l] = layers[l].size();
+        }
+        boolean[][] keep = new boolean[numLayers][];
+        for (int l = 0; l < numLayers; l++) {
+            keep[l] = new boolean[sizes[l]];
+            Arrays.fill(keep[l], true);
+        }
+        // The input and output neurons are the interface of the network and stay
+        for (int l = 1; l < numLayers - 1; l++) {
+            findRemovable(l, sizes, weights, biases, keep[l]);
+        }
+
+        Queue<Layer> pruned = new LinkedList<>();
+        for (int l = 0; l < numLayers; l++) {
+            int rows = count(keep[l]);
+            int cols = l < numLayers - 1 ? count(keep[l + 1]) : 0;
+            int nextSize = l < numLayers - 1 ? sizes[l + 1] : 0;
+            double[] w = new double[rows * cols];
+            double[] b = new double[rows];
+            int r = 0;
+            for (int i = 0; i < sizes[l]; i++) {
+                if (!keep[l][i]) {
+                    continue;
+                }
+                b[r] = biases[l][i];
+                int c = 0;
+                for (int j = 0; j < nextSize; j++) {
+                    if (keep[l + 1][j]) {
+                        w[r * cols + c++] = weights[l][i * nextSize + j];
+                    }
+                }
+                r++;
+            }
+            if (layers[l].getPrecision() == Precision.FLOAT) {
+                float[] fw = new float[w.length];
+                for (int i = 0; i < w.length; i++) {
+                    fw[i] = (float) w[i];
+                }
+                pruned.add(new Layer(rows, cols, fw, b, layers[l].getActivationFunction()));
+            } else {
+                pruned.add(new Layer(rows, cols, w, b, layers[l].getActivationFunction()));
+            }
+        }
+        Network ret_val = new Network(pruned, original.getCostFunction());
+        ret_val.setOptimizer(original.getOptimizer());
+        return ret_val;
+    }
+
+    /**
+     * Marks the neurons of layer l that can be removed, folding what they send to
+     * the next layer into the next layer's biases or into another neuron's
+     * outgoing weights
+     */
+    private void findRemovable(int l, int[] sizes, double[][] weights, double[][] biases, boolean[] keep) {
+        int size = sizes[l];
+        int nextSize = sizes[l + 1];
+        double[] a = activations[l];
+        for (int i = 0; i < size; i++) {
+            double maxWeight = 0;
+            for (int j = 0; j < nextSize; j++) {
+                maxWeight = Math.max(maxWeight, Math.abs(weights[l][i * nextSize + j]));
+            }
+            double mean = 0;
+            for (int k = 0; k < examples; k++) {
+                mean += a[k * size + i];
+            }
+            mean = examples > 0 ? mean / examples : 0;
+            double deviation = 0;
+            for (int k = 0; k < examples; k++) {
+                deviation = Math.max(deviation, Math.abs(a[k * size + i] - mean));
+            }
+            boolean last = i == size - 1 && count(keep) == 1;
+            if (deviation * maxWeight <= tolerance && !last) {
+                for (int j = 0; j < nextSize; j++) {
+                    biases[l + 1][j] += mean * weights[l][i * nextSize + j];
+                }
+                keep[i] = false;
+                continue;
+            }
+            for (int m = 0; m < i; m++) {
+                if (keep[m] && isDuplicate(a, size, i, m, tolerance / maxWeight)) {
+                    for (int j = 0; j < nextSize; j++) {
+                        weights[l][m * nextSize + j] += weights[l][i * nextSize + j];
+                    }
+                    keep[i] = false;
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * @return true if neurons i and m never differ by more than "limit"
+     */
+    private boolean isDuplicate(double[] a, int size, int i, int m, double limit) {
+        for (int k = 0; k < examples; k++) {
+            if (Math.abs(a[k * size + i] - a[k * size + m]) > limit) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int count(boolean[] keep) {
+        int ret_val = 0;
+        for (boolean b : keep) {
+            if (b) {
+                ret_val++;
+            }
+        }
+        return ret_val;
+    }
+}
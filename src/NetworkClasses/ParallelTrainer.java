@@ -0,0 +1,230 @@
+package NetworkClasses;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+
+import DataClasses.Batch;
+
+/**
+ * Trains a network with synchronous data-parallel mini-batch gradient descent.
+ * Every mini-batch is split into one contiguous shard per thread. Each thread
+ * runs the forward and backward passes for its shard against its own activation
+ * and gradient buffers, the per-thread totals are then added to the layers in
+ * shard order and a single update is applied. Because the shards, and the order
+ * they are combined in, only depend on the batch size and the thread count, the
+ * result of training is the same on every run for a fixed seed and thread count.
+ * <p>
+ * The buffers are sized for the network's layers when the trainer is created, so
+ * the layer sizes must not change while it is in use (e.g. through
+ * Layer.setNextNodesNum); trainBatch throws an IllegalStateException if they do
+ */
+public class ParallelTrainer implements AutoCloseable {
+    private final Network network;
+    private final Layer[] layers;
+    private final ForkJoinPool pool;
+    private final Worker[] workers;
+
+    /**
+     * @param network the network to train
+     * @param threads the amount of threads to train with
+     */
+    public ParallelTrainer(Network network, int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("At least one thread is needed to train");
+        }
+        this.network = network;
+        this.layers = network.getLayers().toArray(new Layer[0]);
+        this.pool = new ForkJoinPool(threads);
+        this.workers = new Worker[threads];
+        for (int i = 0; i < threads; i++) {
+            workers[i] = new Worker();
+        }
+    }
+
+    /**
+     * Creates a trainer that uses one thread per available processor
+     *
+     * @param network the network to train
+     */
+    public ParallelTrainer(Network network) {
+        this(network, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * The activation and gradient buffers of a single training thread
+     */
+    private class Worker implements Callable<Void> {
+        private final double[][] z = Backpropagation.scratch(layers);
+        private final double[][] a = new double[layers.length][];
+        private final double[][] dWSums = new double[layers.length][];
+        private final double[][] dBSums = new double[layers.length][];
+        private final double[][] dCda = Backpropagation.scratch(layers);
+        private final double[][] dCdz = Backpropagation.scratch(layers);
+        private final double[] target = new double[layers[layers.length - 1].size()];
+        private double[][] inputs;
+        private double[][] expected;
+        private double[] flatInputs;
+        private double[] flatExpected;
+        private int from;
+        private int to;
+        private boolean instrumented;
+        private long forwardNanos;
+        private long backwardNanos;
+        private double loss;
+        private long allocated;
+
+        private Worker() {
+            for (int l = 0; l < layers.length; l++) {
+                a[l] = new double[layers[l].size()];
+                dWSums[l] = new double[layers[l].size() * layers[l].getNextNodesNum()];
+                dBSums[l] = new double[layers[l].size()];
+            }
+        }
+
+        @Override
+        public Void call() {
+            long startAllocated = instrumented ? TrainingMetrics.currentThreadAllocatedBytes() : 0;
+            forwardNanos = 0;
+            backwardNanos = 0;
+            loss = 0;
+            for (int l = 0; l < layers.length; l++) {
+                Arrays.fill(dWSums[l], 0);
+                Arrays.fill(dBSums[l], 0);
+            }
+            for (int k = from; k < to; k++) {
+                double[] y;
+                if (inputs != null) {
+                    System.arraycopy(inputs[k], 0, a[0], 0, a[0].length);
+                    y = expected[k];
+                } else {
+                    System.arraycopy(flatInputs, k * a[0].length, a[0], 0, a[0].length);
+                    System.arraycopy(flatExpected, k * target.length, target, 0, target.length);
+                    y = target;
+                }
+                if (instrumented) {
+                    long t0 = System.nanoTime();
+                    Backpropagation.forward(layers, z, a);
+                    long t1 = System.nanoTime();
+                    Backpropagation.backward(layers, network.getCostFunction(), z, a, y, dWSums, dBSums, dCda,
+                            dCdz);
+                    backwardNanos += System.nanoTime() - t1;
+                    forwardNanos += t1 - t0;
+                    loss += network.getCostFunction().calculateOutputCost(z[z.length - 1], a[a.length - 1], y,
+                            layers[layers.length - 2].getActivationFunction());
+                } else {
+                    Backpropagation.forward(layers, z, a);
+                    Backpropagation.backward(layers, network.getCostFunction(), z, a, y, dWSums, dBSums, dCda,
+                            dCdz);
+                }
+            }
+            if (instrumented) {
+                long endAllocated = TrainingMetrics.currentThreadAllocatedBytes();
+                allocated = startAllocated < 0 || endAllocated < 0 ? -1 : endAllocated - startAllocated;
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Trains the network on one mini-batch: backpropagates every example in
+     * parallel, combines the results and adjusts the weights and biases once
+     *
+     * @param inputs   the inputs of the examples in this mini-batch
+     * @param expected the expected outputs of the examples, in the same order
+     */
+    public void trainBatch(double[][] inputs, double[][] expected) {
+        for (Worker w : workers) {
+            w.inputs = inputs;
+            w.expected = expected;
+        }
+        train(inputs.length);
+    }
+
+    /**
+     * Trains the network on one mini-batch stored flat, the inputs of example k
+     * starting at index k * (neurons in the input layer) and its expected outputs
+     * at index k * (neurons in the output layer)
+     *
+     * @param inputs    the inputs of the examples in this mini-batch
+     * @param expected  the expected outputs of the examples, in the same order
+     * @param batchSize the amount of examples in this mini-batch
+     */
+    public void trainBatch(double[] inputs, double[] expected, int batchSize) {
+        for (Worker w : workers) {
+            w.flatInputs = inputs;
+            w.flatExpected = expected;
+        }
+        train(batchSize);
+    }
+
+    /**
+     * Trains the network on a mini-batch read by a BatchIterator
+     *
+     * @param batch the mini-batch to train on
+     */
+    public void trainBatch(Batch batch) {
+        trainBatch(batch.getInputs(), batch.getExpected(), batch.size());
+    }
+
+    private void train(int batchSize) {
+        checkTopology();
+        boolean instrumented = network.isInstrumented();
+        TrainingMetrics metrics = network.getMetrics();
+        if (instrumented) {
+            metrics.begin();
+        }
+        List<Worker> tasks = new ArrayList<>(workers.length);
+        for (int i = 0; i < workers.length; i++) {
+            Worker w = workers[i];
+            w.instrumented = instrumented;
+            w.from = (int) ((long) batchSize * i / workers.length);
+            w.to = (int) ((long) batchSize * (i + 1) / workers.length);
+            tasks.add(w);
+        }
+        pool.invokeAll(tasks).forEach(f -> {
+            try {
+                f.get();
+            } catch (Exception e) {
+                throw new IllegalStateException("A training thread failed", e);
+            }
+        });
+        for (Worker w : workers) {
+            int count = w.to - w.from;
+            if (instrumented) {
+                metrics.addForward(w.forwardNanos);
+                metrics.addBackward(w.backwardNanos, w.loss, count);
+                metrics.addAllocated(w.allocated);
+            }
+            for (int l = 0; l < layers.length; l++) {
+                layers[l].addDeltaSums(w.dWSums[l], w.dBSums[l], l < layers.length - 1 ? count : 0,
+                        l > 0 ? count : 0);
+            }
+            w.inputs = null;
+            w.expected = null;
+            w.flatInputs = null;
+            w.flatExpected = null;
+        }
+        network.updateLayers();
+    }
+
+    private void checkTopology() {
+        Worker w = workers[0];
+        for (int l = 0; l < layers.length; l++) {
+            if (w.a[l].length != layers[l].size()
+                    || w.dWSums[l].length != layers[l].size() * layers[l].getNextNodesNum()) {
+                throw new IllegalStateException("Layer " + l + " was resized after the trainer was created");
+            }
+        }
+    }
+
+    /**
+     * Shuts down the threads of this trainer
+     */
+    @Override
+    public void close() {
+        pool.shutdown();
+    }
+}
@@ -0,0 +1,11 @@
+package NetworkClasses;
+
+/**
+ * Enum to hold the ways a layer can store its weights. FLOAT layers store their
+ * weights as 32 bit floats, halving the memory and bandwidth they need, while
+ * biases, activations and running totals of weight changes stay doubles so that
+ * sums are still accumulated in double precision
+ */
+public enum Precision {
+    DOUBLE, FLOAT;
+}
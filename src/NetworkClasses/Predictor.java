@@ -0,0 +1,32 @@
+package NetworkClasses;
+
+/**
+ * Something that can pulse inputs through a trained network. Implementations
+ * are read-only and can be used by any number of threads at once
+ *
+ * @see Network#compilePredictor()
+ * @see CompiledNetwork
+ */
+public interface Predictor {
+    /**
+     * Pulses the input through the network
+     *
+     * @param input the input values, one per neuron in the initial layer
+     * @return a new array holding the output of the network
+     */
+    public double[] predict(double[] input);
+
+    /**
+     * Pulses the input through the network and writes the output to an existing
+     * array
+     *
+     * @param input  the input values, one per neuron in the initial layer
+     * @param output the array to write the output of the network to, one value
+     *               per neuron in the final layer
+     */
+    public void predict(double[] input, double[] output);
+
+    public int getInputSize();
+
+    public int getOutputSize();
+}
@@ -0,0 +1,88 @@
+package NetworkClasses;
+
+/**
+ * The result of comparing a QuantizedNetwork with the network it was quantized
+ * from on the same examples
+ *
+ * @see QuantizedNetwork#compare(CompiledNetwork, DataClasses.DataSource, int)
+ */
+public final class QuantizationReport {
+    private final EvaluationResult original;
+    private final EvaluationResult quantized;
+    private final double maxOutputDifference;
+    private final long disagreements;
+    private final long originalBytes;
+    private final long quantizedBytes;
+
+    QuantizationReport(EvaluationResult original, EvaluationResult quantized, double maxOutputDifference,
+            long disagreements, long originalBytes, long quantizedBytes) {
+        this.original = original;
+        this.quantized = quantized;
+        this.maxOutputDifference = maxOutputDifference;
+        this.disagreements = disagreements;
+        this.originalBytes = originalBytes;
+        this.quantizedBytes = quantizedBytes;
+    }
+
+    public EvaluationResult getOriginal() {
+        return original;
+    }
+
+    public EvaluationResult getQuantized() {
+        return quantized;
+    }
+
+    /**
+     * @return the accuracy of the quantized network minus the accuracy of the
+     *         original, negative when quantizing lost accuracy
+     */
+    public double getAccuracyDelta() {
+        return quantized.getAccuracy() - original.getAccuracy();
+    }
+
+    /**
+     * @return the loss of the quantized network minus the loss of the original
+     */
+    public double getLossDelta() {
+        return quantized.getLoss() - original.getLoss();
+    }
+
+    /**
+     * @return the largest difference between an output of the original network
+     *         and the same output of the quantized network
+     */
+    public double getMaxOutputDifference() {
+        return maxOutputDifference;
+    }
+
+    /**
+     * @return the amount of examples for which the networks predicted different
+     *         classes
+     */
+    public long getDisagreements() {
+        return disagreements;
+    }
+
+    /**
+     * @return the memory taken by the weights of the original network
+     */
+    public long getOriginalBytes() {
+        return originalBytes;
+    }
+
+    /**
+     * @return the memory taken by the weights of the quantized network
+     */
+    public long getQuantizedBytes() {
+        return quantizedBytes;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+                "Quantized: accuracy %.2f%% (%+.2f%%), loss %.5f (%+.5f), %d of %d predictions changed, "
+                        + "max output difference %.4f, weights %d -> %d bytes%n",
+                quantized.getAccuracy() * 100, getAccuracyDelta() * 100, quantized.getLoss(), getLossDelta(),
+                disagreements, quantized.getExamples(), maxOutputDifference, originalBytes, quantizedBytes);
+    }
+}
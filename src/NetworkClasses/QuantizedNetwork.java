@@ -0,0 +1,298 @@
+package NetworkClasses;
+
+import DataClasses.Batch;
+import DataClasses.DataSource;
+import Other.Util;
+import Other.FunctionClasses.Activation.ActivationFunction;
+import Other.FunctionClasses.Cost.CostFunction;
+
+/**
+ * A read-only copy of a Network with 8 bit weights, made for inference. Every
+ * weight is stored as a signed byte with one scale per neuron of the next layer
+ * (w = q * scale), so the weights take an eighth of the memory of a double
+ * precision network. The activations that go into a layer are quantized to
+ * bytes as well, using a scale per layer found by pulsing calibration examples
+ * through the original network, and every sum is a dot product of bytes
+ * accumulated in a 32 bit int. Biases and activation functions stay in double
+ * precision. Like CompiledNetwork, a QuantizedNetwork can be used by any number
+ * of threads at once
+ *
+ * @see Network#quantize(DataSource, int)
+ */
+public final class QuantizedNetwork {
+    private static final int LEVELS = 127;
+    private static final int COMPARISON_CHUNK = 256;
+
+    private final int[] sizes;
+    /** weights[l][j * sizes[l] + i] is the weight from neuron i to neuron j */
+    private final byte[][] weights;
+    /** The scale of each layer's incoming activations */
+    private final double[] inputScales;
+    /** outScales[l][j] = inputScales[l] * (scale of the weights into neuron j) */
+    private final double[][] outScales;
+    private final double[][] biases;
+    private final ActivationFunction[] afs;
+    private final CostFunction cf;
+    private final ThreadLocal<Workspace> workspaces = ThreadLocal.withInitial(this::newWorkspace);
+
+    QuantizedNetwork(Network n, DataSource calibration, int examples) {
+        int numLayers = n.getLayers().size();
+        Layer[] layers = n.getLayers().toArray(new Layer[0]);
+        sizes = new int[numLayers];
+        afs = new ActivationFunction[numLayers];
+        biases = new double[numLayers][];
+        for (int l = 0; l < numLayers; l++) {
+            sizes[l] = layers[l].size();
+            afs[l] = layers[l].getActivationFunction();
+            biases[l] = layers[l].getBiasArray().clone();
+        }
+        cf = n.getCostFunction();
+        if (calibration.getInputSize() != sizes[0]) {
+            throw new IllegalArgumentException(
+                    "The calibration examples do not match a network with " + sizes[0] + " inputs");
+        }
+        inputScales = calibrate(layers, calibration, examples);
+        weights = new byte[numLayers - 1][];
+        outScales = new double[numLayers - 1][];
+        for (int l = 0; l < numLayers - 1; l++) {
+            quantizeLayer(layers[l], l);
+        }
+    }
+
+    /**
+     * Pulses calibration examples through the original network and records the
+     * largest absolute activation that goes into every layer
+     * 
+     * @return the scale of every layer's incoming activations
+     */
+    private double[] calibrate(Layer[] layers, DataSource calibration, int examples) {
+        double[][] a = new double[sizes.length][];
+        for (int l = 0; l < sizes.length; l++) {
+            a[l] = new double[sizes[l]];
+        }
+        double[] expected = new double[calibration.getOutputSize()];
+        double[] max = new double[sizes.length - 1];
+        for (int k = 0; k < examples && calibration.next(a[0], 0, expected, 0); k++) {
+            for (int l = 0; l < sizes.length - 1; l++) {
+                for (double v : a[l]) {
+                    max[l] = Math.max(max[l], Math.abs(v));
+                }
+                if (layers[l].getPrecision() == Precision.FLOAT) {
+                    Util.forwardLayer(a[l], layers[l].getFloatWeightArray(), sizes[l], sizes[l + 1], biases[l + 1],
+                            afs[l], a[l + 1]);
+                } else {
+                    Util.forwardLayer(a[l], layers[l].getWeightArray(), sizes[l], sizes[l + 1], biases[l + 1], afs[l],
+                            a[l + 1]);
+                }
+            }
+        }
+        double[] ret_val = new double[max.length];
+        for (int l = 0; l < max.length; l++) {
+            ret_val[l] = max[l] > 0 ? max[l] / LEVELS : 1;
+        }
+        return ret_val;
+    }
+
+    /**
+     * Transposes a layer's weight matrix so that the weights into one neuron are
+     * next to each other, and quantizes every column with its own scale
+     */
+    private void quantizeLayer(Layer layer, int l) {
+        int rows = sizes[l];
+        int cols = sizes[l + 1];
+        double[] w = layer.getWeightArray();
+        float[] fw = layer.getPrecision() == Precision.FLOAT ? layer.getFloatWeightArray() : null;
+        weights[l] = new byte[rows * cols];
+        outScales[l] = new double[cols];
+        for (int j = 0; j < cols; j++) {
+            double max = 0;
+            for (int i = 0; i < rows; i++) {
+                max = Math.max(max, Math.abs(fw != null ? fw[i * cols + j] : w[i * cols + j]));
+            }
+            double scale = max > 0 ? max / LEVELS : 1;
+            for (int i = 0; i < rows; i++) {
+                weights[l][j * rows + i] = quantize(fw != null ? fw[i * cols + j] : w[i * cols + j], scale);
+            }
+            outScales[l][j] = inputScales[l] * scale;
+        }
+    }
+
+    private static byte quantize(double value, double scale) {
+        long q = Math.round(value / scale);
+        return (byte) Math.max(-LEVELS, Math.min(LEVELS, q));
+    }
+
+    /**
+     * Per-thread scratch space holding the activations of every layer and the
+     * quantized copy of the activations going into each layer
+     */
+    public static final class Workspace {
+        private final double[][] activations;
+        private final byte[][] quantized;
+
+        private Workspace(int[] sizes) {
+            activations = new double[sizes.length][];
+            quantized = new byte[sizes.length - 1][];
+            for (int i = 0; i < sizes.length; i++) {
+                activations[i] = new double[sizes[i]];
+                if (i < sizes.length - 1) {
+                    quantized[i] = new byte[sizes[i]];
+                }
+            }
+        }
+    }
+
+    /**
+     * Creates a workspace sized for this network that can be passed to
+     * predict(double[], Workspace)
+     *
+     * @return a new workspace
+     */
+    public Workspace newWorkspace() {
+        return new Workspace(sizes);
+    }
+
+    /**
+     * Pulses the input through the network using a workspace owned by the calling
+     * thread. Safe to call from any number of threads at once
+     *
+     * @param input the input values, one per neuron in the initial layer
+     * @return a new array holding the output of the network
+     */
+    public double[] predict(double[] input) {
+        return predict(input, workspaces.get()).clone();
+    }
+
+    /**
+     * Pulses the input through the network using the caller's workspace. Nothing
+     * is allocated
+     *
+     * @param input the input values, one per neuron in the initial layer
+     * @param ws    the workspace to hold the activations
+     * @return the output of the network. This is the workspace's output array, so
+     *         it is overwritten by the next call that uses the same workspace
+     */
+    public double[] predict(double[] input, Workspace ws) {
+        double[][] a = ws.activations;
+        System.arraycopy(input, 0, a[0], 0, sizes[0]);
+        for (int l = 0; l < sizes.length - 1; l++) {
+            int rows = sizes[l];
+            int cols = sizes[l + 1];
+            byte[] q = ws.quantized[l];
+            for (int i = 0; i < rows; i++) {
+                q[i] = quantize(a[l][i], inputScales[l]);
+            }
+            double[] z = a[l + 1];
+            for (int j = 0; j < cols; j++) {
+                z[j] = Util.dotProduct(q, 0, weights[l], j * rows, rows) * outScales[l][j] + biases[l + 1][j];
+            }
+            afs[l].calculateOriginal(z, z, 0, cols);
+        }
+        return a[sizes.length - 1];
+    }
+
+    /**
+     * Pulses a batch of inputs stored back to back through the network. Safe to
+     * call from any number of threads at once
+     *
+     * @param inputs    the inputs, the values of sample k starting at index k *
+     *                  (neurons in the initial layer)
+     * @param batchSize the amount of samples in "inputs"
+     * @return the outputs of the network stored back to back in the same way
+     */
+    public double[] predictBatch(double[] inputs, int batchSize) {
+        Workspace ws = workspaces.get();
+        int inputSize = getInputSize();
+        int outputSize = getOutputSize();
+        double[] in = ws.activations[0];
+        double[] ret_val = new double[batchSize * outputSize];
+        for (int k = 0; k < batchSize; k++) {
+            System.arraycopy(inputs, k * inputSize, in, 0, inputSize);
+            System.arraycopy(predict(in, ws), 0, ret_val, k * outputSize, outputSize);
+        }
+        return ret_val;
+    }
+
+    /**
+     * Evaluates this network and the network it was quantized from on the same
+     * examples, to measure what quantizing cost
+     * 
+     * @param original    a compiled copy of the network this one was quantized
+     *                    from
+     * @param data        the examples to evaluate, read from the source's current
+     *                    position. The expected outputs must be one-hot
+     * @param maxExamples the largest amount of examples to evaluate
+     * @return the results of both networks and the differences between them
+     */
+    public QuantizationReport compare(CompiledNetwork original, DataSource data, int maxExamples) {
+        int inputSize = getInputSize();
+        int outputSize = getOutputSize();
+        if (data.getInputSize() != inputSize || data.getOutputSize() != outputSize
+                || original.getInputSize() != inputSize || original.getOutputSize() != outputSize) {
+            throw new IllegalArgumentException("The examples and networks do not match a network with " + inputSize
+                    + " inputs and " + outputSize + " outputs");
+        }
+        EvaluationResult originalResult = new EvaluationResult(outputSize);
+        EvaluationResult quantizedResult = new EvaluationResult(outputSize);
+        double maxDifference = 0;
+        long disagreements = 0;
+        Batch b = new Batch(COMPARISON_CHUNK, inputSize, outputSize);
+        int remaining = maxExamples;
+        int size;
+        while (remaining > 0 && (size = b.fill(data, remaining)) > 0) {
+            remaining -= size;
+            double[] expected = original.predictBatch(b.getInputs(), size);
+            double[] actual = predictBatch(b.getInputs(), size);
+            originalResult.add(expected, b.getExpected(), size, cf);
+            quantizedResult.add(actual, b.getExpected(), size, cf);
+            for (int k = 0; k < size; k++) {
+                int offset = k * outputSize;
+                if (argMax(expected, offset, outputSize) != argMax(actual, offset, outputSize)) {
+                    disagreements++;
+                }
+                for (int i = offset; i < offset + outputSize; i++) {
+                    maxDifference = Math.max(maxDifference, Math.abs(expected[i] - actual[i]));
+                }
+            }
+        }
+        return new QuantizationReport(originalResult, quantizedResult, maxDifference, disagreements,
+                original.getWeightBytes(), getWeightBytes());
+    }
+
+    private static int argMax(double[] v, int offset, int len) {
+        int ret_val = 0;
+        for (int i = 1; i < len; i++) {
+            if (v[offset + i] > v[offset + ret_val]) {
+                ret_val = i;
+            }
+        }
+        return ret_val;
+    }
+
+    /**
+     * @return the amount of memory taken by the quantized weights and their scales
+     */
+    public long getWeightBytes() {
+        long ret_val = 0;
+        for (int l = 0; l < weights.length; l++) {
+            ret_val += weights[l].length + (long) outScales[l].length * Double.BYTES;
+        }
+        return ret_val;
+    }
+
+    public int getInputSize() {
+        return sizes[0];
+    }
+
+    public int getOutputSize() {
+        return sizes[sizes.length - 1];
+    }
+
+    public int[] getLayerSizes() {
+        return sizes.clone();
+    }
+
+    public CostFunction getCostFunction() {
+        return cf;
+    }
+}
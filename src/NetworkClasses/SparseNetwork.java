@@ -0,0 +1,181 @@
+package NetworkClasses;
+
+import Other.Util;
+import Other.FunctionClasses.Activation.ActivationFunction;
+import Other.FunctionClasses.Cost.CostFunction;
+
+/**
+ * A read-only copy of a pruned Network made for inference. Only the non-zero
+ * weights are kept, in compressed sparse row (CSR) form: row j of a layer's
+ * matrix holds the weights going into neuron j of the next layer together with
+ * the neurons they come from, so a pulse reads every non-zero weight once and
+ * skips the rest. Pulsing takes time proportional to the amount of non-zero
+ * weights, so a network with 90% of its weights pruned is pulsed roughly ten
+ * times faster than a dense one. Like CompiledNetwork, a SparseNetwork can be
+ * used by any number of threads at once
+ *
+ * @see Network#compileSparse()
+ * @see Util#forwardLayerSparse(double[], int[], int[], double[], int, double[],
+ *      ActivationFunction, double[])
+ */
+public final class SparseNetwork {
+    private final int[] sizes;
+    private final int[][] rowStarts;
+    private final int[][] indices;
+    private final double[][] values;
+    private final double[][] biases;
+    private final ActivationFunction[] afs;
+    private final CostFunction cf;
+    private final ThreadLocal<double[][]> workspaces = ThreadLocal.withInitial(this::newWorkspace);
+
+    SparseNetwork(Network n) {
+        Layer[] layers = n.getLayers().toArray(new Layer[0]);
+        sizes = new int[layers.length];
+        rowStarts = new int[layers.length - 1][];
+        indices = new int[layers.length - 1][];
+        values = new double[layers.length - 1][];
+        biases = new double[layers.length][];
+        afs = new ActivationFunction[layers.length];
+        for (int l = 0; l < layers.length; l++) {
+            sizes[l] = layers[l].size();
+            biases[l] = layers[l].getBiasArray().clone();
+            afs[l] = layers[l].getActivationFunction();
+            if (l < layers.length - 1) {
+                compress(layers[l], l);
+            }
+        }
+        cf = n.getCostFunction();
+    }
+
+    /**
+     * Converts a layer's row-major weight matrix into CSR form of its transpose
+     */
+    private void compress(Layer layer, int l) {
+        int rows = layer.size();
+        int cols = layer.getNextNodesNum();
+        double[] w = layer.getWeightsAsVector();
+        int nonZero = layer.countNonZeroWeights();
+        rowStarts[l] = new int[cols + 1];
+        indices[l] = new int[nonZero];
+        values[l] = new double[nonZero];
+        int k = 0;
+        for (int j = 0; j < cols; j++) {
+            rowStarts[l][j] = k;
+            for (int i = 0; i < rows; i++) {
+                if (w[i * cols + j] != 0) {
+                    indices[l][k] = i;
+                    values[l][k] = w[i * cols + j];
+                    k++;
+                }
+            }
+        }
+        rowStarts[l][cols] = k;
+    }
+
+    /**
+     * Creates scratch space for the activations of every layer that can be
+     * passed to predict(double[], double[][]). Must not be shared by threads that
+     * predict at the same time
+     *
+     * @return a new workspace
+     */
+    public double[][] newWorkspace() {
+        double[][] ret_val = new double[sizes.length][];
+        for (int l = 0; l < sizes.length; l++) {
+            ret_val[l] = new double[sizes[l]];
+        }
+        return ret_val;
+    }
+
+    /**
+     * Pulses the input through the network using a workspace owned by the calling
+     * thread. Safe to call from any number of threads at once
+     *
+     * @param input the input values, one per neuron in the initial layer
+     * @return a new array holding the output of the network
+     */
+    public double[] predict(double[] input) {
+        return predict(input, workspaces.get()).clone();
+    }
+
+    /**
+     * Pulses the input through the network using the caller's workspace. Nothing
+     * is allocated
+     *
+     * @param input the input values, one per neuron in the initial layer
+     * @param a     the workspace to hold the activations
+     * @return the output of the network. This is the workspace's output array, so
+     *         it is overwritten by the next call that uses the same workspace
+     */
+    public double[] predict(double[] input, double[][] a) {
+        System.arraycopy(input, 0, a[0], 0, sizes[0]);
+        for (int l = 0; l < sizes.length - 1; l++) {
+            Util.forwardLayerSparse(a[l], rowStarts[l], indices[l], values[l], sizes[l + 1], biases[l + 1], afs[l],
+                    a[l + 1]);
+        }
+        return a[sizes.length - 1];
+    }
+
+    /**
+     * Pulses a batch of inputs stored back to back through the network. Safe to
+     * call from any number of threads at once
+     *
+     * @param inputs    the inputs, the values of sample k starting at index k *
+     *                  (neurons in the initial layer)
+     * @param batchSize the amount of samples in "inputs"
+     * @return the outputs of the network stored back to back in the same way
+     */
+    public double[] predictBatch(double[] inputs, int batchSize) {
+        double[][] a = workspaces.get();
+        int inputSize = getInputSize();
+        int outputSize = getOutputSize();
+        double[] ret_val = new double[batchSize * outputSize];
+        for (int k = 0; k < batchSize; k++) {
+            System.arraycopy(inputs, k * inputSize, a[0], 0, inputSize);
+            System.arraycopy(predict(a[0], a), 0, ret_val, k * outputSize, outputSize);
+        }
+        return ret_val;
+    }
+
+    /**
+     * @return the fraction of weights that are zero and not stored, 0.0 - 1.0
+     */
+    public double getSparsity() {
+        long total = 0;
+        long nonZero = 0;
+        for (int l = 0; l < sizes.length - 1; l++) {
+            total += (long) sizes[l] * sizes[l + 1];
+            nonZero += values[l].length;
+        }
+        return total == 0 ? 0 : 1 - (double) nonZero / total;
+    }
+
+    /**
+     * @return the amount of memory taken by the non-zero weights, their indices
+     *         and the row starts
+     */
+    public long getWeightBytes() {
+        long ret_val = 0;
+        for (int l = 0; l < sizes.length - 1; l++) {
+            ret_val += (long) values[l].length * (Double.BYTES + Integer.BYTES)
+                    + (long) rowStarts[l].length * Integer.BYTES;
+        }
+        return ret_val;
+    }
+
+    public int getInputSize() {
+        return sizes[0];
+    }
+
+    public int getOutputSize() {
+        return sizes[sizes.length - 1];
+    }
+
+    public int[] getLayerSizes() {
+        return sizes.clone();
+    }
+
+    public CostFunction getCostFunction() {
+        return cf;
+    }
+}
@@ -0,0 +1,86 @@
+package NetworkClasses;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * A JDK Flight Recorder event committed for every mini-batch a network is
+ * trained on. Recorded with the rest of a flight recording when it is enabled,
+ * for example with -XX:StartFlightRecording
+ *
+ * @see TrainingMetrics
+ */
+@Name("NeuralNetwork.TrainingBatch")
+@Label("Training Batch")
+@Category("Neural Network")
+@Description("The metrics of one mini-batch of training")
+@StackTrace(false)
+final class TrainingBatchEvent extends jdk.jfr.Event {
+    private static final EventType TYPE = EventType.getEventType(TrainingBatchEvent.class);
+
+    @Label("Batch")
+    long batch;
+
+    @Label("Samples")
+    int samples;
+
+    @Label("Forward Time")
+    @Timespan(Timespan.NANOSECONDS)
+    long forwardTime;
+
+    @Label("Backward Time")
+    @Timespan(Timespan.NANOSECONDS)
+    long backwardTime;
+
+    @Label("Update Time")
+    @Timespan(Timespan.NANOSECONDS)
+    long updateTime;
+
+    @Label("Batch Time")
+    @Timespan(Timespan.NANOSECONDS)
+    long batchTime;
+
+    @Label("Samples per Second")
+    double samplesPerSecond;
+
+    @Label("Loss")
+    double loss;
+
+    @Label("Allocated")
+    @DataAmount(DataAmount.BYTES)
+    long allocated;
+
+    /**
+     * @return true if a running recording has this event enabled
+     */
+    static boolean isTypeEnabled() {
+        return TYPE.isEnabled();
+    }
+
+    /**
+     * Commits an event holding the given metrics
+     * 
+     * @param m the metrics of a finished mini-batch
+     */
+    static void commit(TrainingMetrics m) {
+        TrainingBatchEvent e = new TrainingBatchEvent();
+        if (e.shouldCommit()) {
+            e.batch = m.getBatch();
+            e.samples = m.getSamples();
+            e.forwardTime = m.getForwardNanos();
+            e.backwardTime = m.getBackwardNanos();
+            e.updateTime = m.getUpdateNanos();
+            e.batchTime = m.getBatchNanos();
+            e.samplesPerSecond = m.getSamplesPerSecond();
+            e.loss = m.getLoss();
+            e.allocated = m.getAllocatedBytes();
+            e.commit();
+        }
+    }
+}
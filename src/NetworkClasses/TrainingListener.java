@@ -0,0 +1,18 @@
+package NetworkClasses;
+
+/**
+ * Receives the metrics of every mini-batch a network is trained on
+ *
+ * @see Network#addTrainingListener(TrainingListener)
+ */
+public interface TrainingListener {
+    /**
+     * Called by updateLayers after the weights and biases have been adjusted,
+     * on the thread that called updateLayers
+     * 
+     * @param metrics the metrics of the mini-batch that was just applied. The
+     *                object is reused for the next mini-batch, so it must not be
+     *                kept after this method returns
+     */
+    public void batchCompleted(TrainingMetrics metrics);
+}
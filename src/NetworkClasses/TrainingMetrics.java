@@ -0,0 +1,177 @@
+package NetworkClasses;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * The metrics of one mini-batch of training: the time spent in the forward pass
+ * (pulsing), the backward pass (learnFrom) and the update (updateLayers), the
+ * average loss of the samples and the bytes allocated while training on them.
+ * A mini-batch starts with the first pulse after an update and ends with the
+ * next update.
+ * <p>
+ * When a ParallelTrainer trains the network, the forward and backward times are
+ * summed over all of its threads, so they can add up to more than the batch
+ * time. Allocated bytes are measured per thread with
+ * com.sun.management.ThreadMXBean and are -1 on JVMs that do not support it
+ *
+ * @see TrainingListener
+ */
+public final class TrainingMetrics {
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    private long batch;
+    private int samples;
+    private long forwardNanos;
+    private long backwardNanos;
+    private long updateNanos;
+    private long batchNanos;
+    private double lossSum;
+    private long allocatedBytes;
+    private long startNanos;
+    private long startAllocated;
+    private boolean started;
+
+    TrainingMetrics() {
+    }
+
+    /**
+     * @return the bytes allocated so far by the calling thread, or -1 if this is
+     *         not supported
+     */
+    static long currentThreadAllocatedBytes() {
+        if (THREADS instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) THREADS).getCurrentThreadAllocatedBytes();
+        }
+        return -1;
+    }
+
+    /**
+     * Starts a new mini-batch unless one has already been started
+     */
+    void begin() {
+        if (!started) {
+            started = true;
+            startNanos = System.nanoTime();
+            startAllocated = currentThreadAllocatedBytes();
+        }
+    }
+
+    void addForward(long nanos) {
+        forwardNanos += nanos;
+    }
+
+    /**
+     * Records the backward pass of one or more samples
+     * 
+     * @param nanos the time spent
+     * @param loss  the summed loss of the samples
+     * @param count the amount of samples
+     */
+    void addBackward(long nanos, double loss, int count) {
+        backwardNanos += nanos;
+        lossSum += loss;
+        samples += count;
+    }
+
+    /**
+     * Adds bytes allocated by other threads (for example those of a
+     * ParallelTrainer) to this mini-batch
+     * 
+     * @param bytes the bytes allocated, or -1 if they could not be measured
+     */
+    void addAllocated(long bytes) {
+        if (bytes < 0 || allocatedBytes < 0) {
+            allocatedBytes = -1;
+        } else {
+            allocatedBytes += bytes;
+        }
+    }
+
+    /**
+     * Ends the current mini-batch
+     * 
+     * @param nanos the time spent in the update
+     */
+    void finish(long nanos) {
+        updateNanos = nanos;
+        batchNanos = System.nanoTime() - startNanos;
+        long allocated = currentThreadAllocatedBytes();
+        addAllocated(allocated < 0 || startAllocated < 0 ? -1 : allocated - startAllocated);
+        batch++;
+    }
+
+    /**
+     * Clears the metrics of the last mini-batch so that the next one can start
+     */
+    void reset() {
+        samples = 0;
+        forwardNanos = 0;
+        backwardNanos = 0;
+        updateNanos = 0;
+        batchNanos = 0;
+        lossSum = 0;
+        allocatedBytes = 0;
+        started = false;
+    }
+
+    /**
+     * @return the number of this mini-batch, starting at 1
+     */
+    public long getBatch() {
+        return batch;
+    }
+
+    /**
+     * @return the amount of samples that were learned from
+     */
+    public int getSamples() {
+        return samples;
+    }
+
+    public long getForwardNanos() {
+        return forwardNanos;
+    }
+
+    public long getBackwardNanos() {
+        return backwardNanos;
+    }
+
+    public long getUpdateNanos() {
+        return updateNanos;
+    }
+
+    /**
+     * @return the time from the start of the mini-batch to the end of its update
+     */
+    public long getBatchNanos() {
+        return batchNanos;
+    }
+
+    public double getSamplesPerSecond() {
+        return batchNanos > 0 ? samples * 1e9 / batchNanos : 0;
+    }
+
+    /**
+     * @return the average cost of the samples, as calculated by the network's
+     *         cost function
+     */
+    public double getLoss() {
+        return samples > 0 ? lossSum / samples : 0;
+    }
+
+    /**
+     * @return the bytes allocated while training on this mini-batch, or -1 if
+     *         they could not be measured
+     */
+    public long getAllocatedBytes() {
+        return allocatedBytes;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Batch %d: %d samples, loss %.5f, %.0f samples/s (forward %.3f ms, backward %.3f ms, "
+                + "update %.3f ms), %d bytes allocated", batch, samples, getLoss(), getSamplesPerSecond(),
+                forwardNanos / 1e6, backwardNanos / 1e6, updateNanos / 1e6, allocatedBytes);
+    }
+}
@@ -1,6 +1,12 @@
 package Other;
 
+import java.io.File;
+
 public final class Constants {
+    /**
+     * The directory networks are saved to and served from by default
+     */
+    public static final File savedNetworksDirectory = new File("src", "Saved Networks");
     /**
      * The minimum range at which neuron weights and biases are randomized
      */
@@ -7,6 +7,15 @@ import java.util.Random;
  */
 public class DataGenerator {
     private static Random r = new Random();
+    /**
+     * The width and height of every generated matrix
+     */
+    public static final int SIZE = 9;
+    /**
+     * The amount of different shapes that can be generated: a square, a diamond, a
+     * plus and a cross, in that order
+     */
+    public static final int SHAPES = 4;
 
     /**
      * Generates a square in a 9x9 matrix
@@ -63,4 +72,42 @@ public class DataGenerator {
                 { a, 0, 0, 0, 0, 0, 0, 0, a }, };
         return ret_val;
     }
+
+    /**
+     * Generates one of the shapes straight into a flat array, row by row, without
+     * allocating anything. The result is the same as flattening the matrix
+     * returned by generateA, generateB, generateC or generateD
+     * 
+     * @param shape  0 for a square, 1 for a diamond, 2 for a plus and 3 for a cross
+     * @param rand   the source of the shape's brightness
+     * @param out    the array to write the SIZE * SIZE values to
+     * @param offset the index in out of the first value
+     */
+    public static void generate(int shape, Random rand, double[] out, int offset) {
+        double a = (rand.nextDouble() * (0.25)) + (0.75);
+        int last = SIZE - 1;
+        int mid = SIZE / 2;
+        for (int i = 0; i < SIZE; i++) {
+            for (int j = 0; j < SIZE; j++) {
+                boolean set;
+                switch (shape) {
+                    case 0:
+                        set = i == 0 || i == last || j == 0 || j == last;
+                        break;
+                    case 1:
+                        set = Math.abs(i - mid) + Math.abs(j - mid) == mid;
+                        break;
+                    case 2:
+                        set = i == mid || j == mid;
+                        break;
+                    case 3:
+                        set = i == j || i + j == last;
+                        break;
+                    default:
+                        throw new IllegalArgumentException("There is no shape " + shape);
+                }
+                out[offset + i * SIZE + j] = set ? a : 0;
+            }
+        }
+    }
 }
\ No newline at end of file
@@ -62,7 +62,121 @@ public class ActivationFunction {
 
                 };
                 break;
+            case SOFTMAX:
+                selectedFunction = new ActivationFunctionInterface() {
+
+                    @Override
+                    public double calculateOriginal(double input) {
+                        throw new UnsupportedOperationException("Softmax depends on the whole layer");
+                    }
+
+                    @Override
+                    public double calculateDerivative(double input) {
+                        throw new UnsupportedOperationException("Softmax depends on the whole layer");
+                    }
+
+                };
+                break;
+            default:
+        }
+    }
+
+    /**
+     * Applies this activation function to a whole range of pre-activation values
+     * at once. The common functions are computed directly in a single loop instead
+     * of through one interface call per element. Softmax treats the range as one
+     * layer, so a range must never span more than one sample
+     * 
+     * @param input the pre-activation values
+     * @param out   the array the activation values are written to. May be the
+     *              same array as input
+     * @param from  the first index to activate
+     * @param to    the index after the last one to activate
+     */
+    public void calculateOriginal(double[] input, double[] out, int from, int to) {
+        switch (ao) {
+            case SIGMOID:
+                for (int i = from; i < to; i++) {
+                    out[i] = 1 / (1 + Math.exp(-input[i]));
+                }
+                break;
+            case RE_LU:
+                for (int i = from; i < to; i++) {
+                    out[i] = input[i] > 0 ? input[i] : 0;
+                }
+                break;
+            case LEAKY_RE_LU:
+                for (int i = from; i < to; i++) {
+                    out[i] = input[i] > 0 ? input[i] : 0.1 * input[i];
+                }
+                break;
+            case SOFTMAX:
+                // Shifting by the largest value keeps exp from overflowing
+                double max = Double.NEGATIVE_INFINITY;
+                for (int i = from; i < to; i++) {
+                    max = Math.max(max, input[i]);
+                }
+                double sum = 0;
+                for (int i = from; i < to; i++) {
+                    out[i] = Math.exp(input[i] - max);
+                    sum += out[i];
+                }
+                for (int i = from; i < to; i++) {
+                    out[i] /= sum;
+                }
+                break;
             default:
+                for (int i = from; i < to; i++) {
+                    out[i] = selectedFunction.calculateOriginal(input[i]);
+                }
+        }
+    }
+
+    /**
+     * Calculates the partial derivative of the cost with respect to the
+     * pre-activation values of a whole layer, given the partial derivative with
+     * respect to its activation values. The derivative is computed from the values
+     * cached by the forward pass: the sigmoid derivative is output * (1 - output),
+     * so no exponentials are recomputed
+     * 
+     * @param input  the pre-activation values from the forward pass
+     * @param output the activation values from the forward pass
+     * @param dCda   the partial derivative of the cost with respect to the
+     *               activation values
+     * @param dCdz   the array the result is written to
+     */
+    public void calculateDerivative(double[] input, double[] output, double[] dCda, double[] dCdz) {
+        int len = input.length;
+        switch (ao) {
+            case SIGMOID:
+                for (int i = 0; i < len; i++) {
+                    dCdz[i] = output[i] * (1 - output[i]) * dCda[i];
+                }
+                break;
+            case RE_LU:
+                for (int i = 0; i < len; i++) {
+                    dCdz[i] = input[i] > 0 ? dCda[i] : 0;
+                }
+                break;
+            case LEAKY_RE_LU:
+                for (int i = 0; i < len; i++) {
+                    dCdz[i] = input[i] > 0 ? dCda[i] : 0.1 * dCda[i];
+                }
+                break;
+            case SOFTMAX:
+                // Every output depends on every input: dCdz[i] = a[i] * (dCda[i] - sum(dCda[k] * a[k]))
+                double weighted = 0;
+                for (int i = 0; i < len; i++) {
+                    weighted += dCda[i] * output[i];
+                }
+                for (int i = 0; i < len; i++) {
+                    dCdz[i] = output[i] * (dCda[i] - weighted);
+                }
+                break;
+            default:
+                for (int i = 0; i < len; i++) {
+                    dCdz[i] = selectedFunction.calculateDerivative(input[i]) * dCda[i];
+                }
         }
     }
 
@@ -74,6 +188,10 @@ public class ActivationFunction {
         return ao.toString();
     }
 
+    public ActivationOptions getOptions() {
+        return ao;
+    }
+
     /**
      * Converts a passed in string to a valid activation function
      * 
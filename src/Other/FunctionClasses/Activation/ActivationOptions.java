@@ -1,8 +1,11 @@
 package Other.FunctionClasses.Activation;
 
 /**
- * Enum to hold ActivationFunction names
+ * Enum to hold ActivationFunction names. The activation function of layer i
+ * produces the values of layer i + 1, so SOFTMAX belongs on the second-to-last
+ * layer, where it turns the values of the output layer into probabilities that
+ * add up to 1
  */
 public enum ActivationOptions {
-    SIGMOID, RE_LU, LEAKY_RE_LU;
+    SIGMOID, RE_LU, LEAKY_RE_LU, SOFTMAX;
 }
\ No newline at end of file
@@ -1,5 +1,8 @@
 package Other.FunctionClasses.Cost;
 
+import Other.FunctionClasses.Activation.ActivationFunction;
+import Other.FunctionClasses.Activation.ActivationOptions;
+
 public class CostFunction {
     private CostFunctionInterface selectedFunction;
     private CostOptions co;
@@ -48,12 +51,112 @@ public class CostFunction {
                         return ret_val;
                     }
 
+                    @Override
+                    public void calculateDerivative(double[] result, double[] desiredValues, double[] out) {
+                        for (int i = 0; i < result.length; i++) {
+                            out[i] = 2 * (result[i] - desiredValues[i]);
+                        }
+                    }
+
+                };
+                break;
+            case CROSS_ENTROPY:
+                selectedFunction = new CostFunctionInterface() {
+
+                    @Override
+                    public double calculateOriginal(double[] result, double[] desiredValues) {
+                        double ret_val = 0;
+                        for (int i = 0; i < result.length; i++) {
+                            if (desiredValues[i] != 0) {
+                                ret_val -= desiredValues[i] * Math.log(Math.max(result[i], Double.MIN_NORMAL));
+                            }
+                        }
+                        return ret_val;
+                    }
+
+                    @Override
+                    public double[] calculateDerivative(double[] result, double[] desiredValues) {
+                        double[] ret_val = new double[result.length];
+                        calculateDerivative(result, desiredValues, ret_val);
+                        return ret_val;
+                    }
+
+                    @Override
+                    public void calculateDerivative(double[] result, double[] desiredValues, double[] out) {
+                        for (int i = 0; i < result.length; i++) {
+                            out[i] = -desiredValues[i] / Math.max(result[i], Double.MIN_NORMAL);
+                        }
+                    }
+
                 };
                 break;
             default:
         }
     }
 
+    /**
+     * Calculates the partial derivative of the cost with respect to the values of
+     * the output layer before activation. Cross entropy after a softmax output
+     * layer is calculated in one step as output - desired, which is exact and
+     * never divides by a probability close to zero. Every other combination
+     * multiplies the derivative of the cost by the derivative of the activation
+     * function
+     * 
+     * @param z             the values of the output layer before activation
+     * @param a             the outputs of the network
+     * @param desiredValues the desired outputs
+     * @param af            the activation function that produced a from z
+     * @param dCda          scratch array for the derivative with respect to a
+     * @param dCdz          the array the result is written to
+     */
+    public void calculateOutputDerivative(double[] z, double[] a, double[] desiredValues, ActivationFunction af,
+            double[] dCda, double[] dCdz) {
+        if (isFusedWith(af)) {
+            for (int i = 0; i < a.length; i++) {
+                dCdz[i] = a[i] - desiredValues[i];
+            }
+        } else {
+            selectedFunction.calculateDerivative(a, desiredValues, dCda);
+            af.calculateDerivative(z, a, dCda, dCdz);
+        }
+    }
+
+    /**
+     * Calculates the cost of one example from the output layer's values before
+     * and after activation. Cross entropy after a softmax output layer is
+     * calculated from the values before activation with the log-sum-exp trick,
+     * log(sum(exp(z))) - sum(desired * z), so outputs that round to zero still
+     * give a finite cost
+     * 
+     * @param z             the values of the output layer before activation
+     * @param a             the outputs of the network
+     * @param desiredValues the desired outputs, adding up to 1 for cross entropy
+     * @param af            the activation function that produced a from z
+     * @return the cost
+     */
+    public double calculateOutputCost(double[] z, double[] a, double[] desiredValues, ActivationFunction af) {
+        if (!isFusedWith(af)) {
+            return selectedFunction.calculateOriginal(a, desiredValues);
+        }
+        double max = Double.NEGATIVE_INFINITY;
+        for (double v : z) {
+            max = Math.max(max, v);
+        }
+        double sum = 0;
+        double desiredSum = 0;
+        double weighted = 0;
+        for (int i = 0; i < z.length; i++) {
+            sum += Math.exp(z[i] - max);
+            desiredSum += desiredValues[i];
+            weighted += desiredValues[i] * z[i];
+        }
+        return (max + Math.log(sum)) * desiredSum - weighted;
+    }
+
+    private boolean isFusedWith(ActivationFunction af) {
+        return co == CostOptions.CROSS_ENTROPY && af.getOptions() == ActivationOptions.SOFTMAX;
+    }
+
     public CostFunctionInterface getFunction() {
         return selectedFunction;
     }
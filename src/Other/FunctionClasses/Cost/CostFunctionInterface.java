@@ -22,4 +22,14 @@ public interface CostFunctionInterface {
      * @return the derivative vector cost of all neurons
      */
     public double[] calculateDerivative(double[] result, double[] desiredValues);
+
+    /**
+     * Same as calculateDerivative(double[], double[]) but writes the derivative
+     * vector to an existing array instead of allocating one
+     * 
+     * @param result        the result of the neural network pulse
+     * @param desiredValues the desired values of a pulse for this training example
+     * @param out           the array to write the derivative vector cost to
+     */
+    public void calculateDerivative(double[] result, double[] desiredValues, double[] out);
 }
\ No newline at end of file
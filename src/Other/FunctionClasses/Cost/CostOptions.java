@@ -1,8 +1,10 @@
 package Other.FunctionClasses.Cost;
 
 /**
- * Enum to hold CostOption names
+ * Enum to hold CostOption names. CROSS_ENTROPY expects one-hot desired values
+ * and is meant for output layers produced by SOFTMAX, i.e. networks whose
+ * second-to-last layer has the SOFTMAX activation function
  */
 public enum CostOptions {
-    QUADRATIC;
+    QUADRATIC, CROSS_ENTROPY;
 }
\ No newline at end of file
@@ -0,0 +1,259 @@
+package Other.FunctionClasses.Optimizer;
+
+import Other.Constants;
+
+/**
+ * Decides how the weights and biases of a network are changed from the averaged
+ * backpropagation results of a mini-batch. An Optimizer only holds the
+ * hyperparameters, so one can be shared by every layer of a network; any state
+ * an optimizer keeps between updates (the running averages of momentum, RMSProp
+ * and Adam) is stored by the layers in flat arrays, getStateSize() values per
+ * weight or bias.
+ * <p>
+ * Each update is a single pass over a layer's parameters that averages the
+ * running total of the gradient, adds the L2 penalty, applies the optimizer step
+ * and clears the running total:
+ *
+ * <pre>
+ * g = sum / count + l2 * p
+ * SGD:      p -= learningRate * g
+ * MOMENTUM: v = beta1 * v + g;  p -= learningRate * v
+ * RMS_PROP: s = beta2 * s + (1 - beta2) * g^2;  p -= learningRate * g / (sqrt(s) + epsilon)
+ * ADAM:     m = beta1 * m + (1 - beta1) * g;  v = beta2 * v + (1 - beta2) * g^2
+ *           p -= learningRate * (m / (1 - beta1^t)) / (sqrt(v / (1 - beta2^t)) + epsilon)
+ * </pre>
+ *
+ * @see OptimizerOptions
+ */
+public class Optimizer {
+    private final OptimizerOptions oo;
+    private final double learningRate;
+    private final double l2;
+    private final double beta1;
+    private final double beta2;
+    private final double epsilon;
+
+    /**
+     * Creates an optimizer with the default hyperparameters of its kind. SGD and
+     * MOMENTUM use the learning rate from Constants, RMS_PROP and ADAM use 0.001.
+     * Every kind uses the L2 regularization constant from Constants
+     * 
+     * @param o the enum value corresponding to a specific optimizer
+     * @see Constants
+     */
+    public Optimizer(OptimizerOptions o) {
+        this(o, o == OptimizerOptions.SGD || o == OptimizerOptions.MOMENTUM ? Constants.learningRate : 0.001,
+                Constants.L2regConstant);
+    }
+
+    /**
+     * Creates an optimizer with the given learning rate and L2 regularization
+     * constant and the default values of the other hyperparameters: 0.9 for
+     * beta1, 0.9 for beta2 with RMS_PROP and 0.999 with ADAM, and 1e-8 for
+     * epsilon
+     * 
+     * @param o            the enum value corresponding to a specific optimizer
+     * @param learningRate the size of every step
+     * @param l2           the L2 regularization constant of the weights
+     */
+    public Optimizer(OptimizerOptions o, double learningRate, double l2) {
+        this(o, learningRate, l2, 0.9, o == OptimizerOptions.RMS_PROP ? 0.9 : 0.999, 1e-8);
+    }
+
+    /**
+     * @param o            the enum value corresponding to a specific optimizer
+     * @param learningRate the size of every step
+     * @param l2           the L2 regularization constant of the weights
+     * @param beta1        the decay of the running average of the gradient
+     *                     (MOMENTUM and ADAM)
+     * @param beta2        the decay of the running average of the squared
+     *                     gradient (RMS_PROP and ADAM)
+     * @param epsilon      keeps RMS_PROP and ADAM from dividing by zero
+     */
+    public Optimizer(OptimizerOptions o, double learningRate, double l2, double beta1, double beta2,
+            double epsilon) {
+        this.oo = o;
+        this.learningRate = learningRate;
+        this.l2 = l2;
+        this.beta1 = beta1;
+        this.beta2 = beta2;
+        this.epsilon = epsilon;
+    }
+
+    /**
+     * @return the amount of values of state this optimizer keeps per parameter
+     */
+    public int getStateSize() {
+        switch (oo) {
+            case MOMENTUM:
+            case RMS_PROP:
+                return 1;
+            case ADAM:
+                return 2;
+            default:
+                return 0;
+        }
+    }
+
+    /**
+     * Updates the weights of a layer. See the class description for the formulas
+     * 
+     * @param w     the weights
+     * @param sums  the running totals of the weight gradients. Cleared afterwards
+     * @param count the amount of examples summed into sums
+     * @param state the state of this optimizer for these weights, getStateSize()
+     *              * w.length values that start out as zero
+     * @param t     the amount of updates so far, including this one
+     */
+    public void updateWeights(double[] w, double[] sums, int count, double[] state, long t) {
+        update(w, sums, count, l2, state, t);
+    }
+
+    /**
+     * Updates the biases of a layer. Works like updateWeights but without the L2
+     * penalty, since biases are not regularized
+     * 
+     * @param b     the biases
+     * @param sums  the running totals of the bias gradients. Cleared afterwards
+     * @param count the amount of examples summed into sums
+     * @param state the state of this optimizer for these biases, getStateSize() *
+     *              b.length values that start out as zero
+     * @param t     the amount of updates so far, including this one
+     */
+    public void updateBiases(double[] b, double[] sums, int count, double[] state, long t) {
+        update(b, sums, count, 0, state, t);
+    }
+
+    private void update(double[] w, double[] sums, int count, double l2, double[] state, long t) {
+        int n = w.length;
+        double scale = 1.0 / count;
+        switch (oo) {
+            case SGD:
+                for (int i = 0; i < n; i++) {
+                    double g = sums[i] * scale + l2 * w[i];
+                    sums[i] = 0;
+                    w[i] -= learningRate * g;
+                }
+                break;
+            case MOMENTUM:
+                for (int i = 0; i < n; i++) {
+                    double g = sums[i] * scale + l2 * w[i];
+                    sums[i] = 0;
+                    state[i] = beta1 * state[i] + g;
+                    w[i] -= learningRate * state[i];
+                }
+                break;
+            case RMS_PROP:
+                for (int i = 0; i < n; i++) {
+                    double g = sums[i] * scale + l2 * w[i];
+                    sums[i] = 0;
+                    state[i] = beta2 * state[i] + (1 - beta2) * g * g;
+                    w[i] -= learningRate * g / (Math.sqrt(state[i]) + epsilon);
+                }
+                break;
+            case ADAM:
+                double c1 = 1 / (1 - Math.pow(beta1, t));
+                double c2 = 1 / (1 - Math.pow(beta2, t));
+                for (int i = 0; i < n; i++) {
+                    double g = sums[i] * scale + l2 * w[i];
+                    sums[i] = 0;
+                    double m = state[i] = beta1 * state[i] + (1 - beta1) * g;
+                    double v = state[n + i] = beta2 * state[n + i] + (1 - beta2) * g * g;
+                    w[i] -= learningRate * (m * c1) / (Math.sqrt(v * c2) + epsilon);
+                }
+                break;
+            default:
+        }
+    }
+
+    /**
+     * Same as updateWeights(double[], double[], int, double[], long) for single
+     * precision weights. The update itself is calculated in double precision
+     * 
+     * @param w     the weights
+     * @param sums  the running totals of the weight gradients. Cleared afterwards
+     * @param count the amount of examples summed into sums
+     * @param state the state of this optimizer for these weights, getStateSize()
+     *              * w.length values that start out as zero
+     * @param t     the amount of updates so far, including this one
+     */
+    public void updateWeights(float[] w, double[] sums, int count, double[] state, long t) {
+        int n = w.length;
+        double scale = 1.0 / count;
+        switch (oo) {
+            case SGD:
+                for (int i = 0; i < n; i++) {
+                    double g = sums[i] * scale + l2 * w[i];
+                    sums[i] = 0;
+                    w[i] = (float) (w[i] - learningRate * g);
+                }
+                break;
+            case MOMENTUM:
+                for (int i = 0; i < n; i++) {
+                    double g = sums[i] * scale + l2 * w[i];
+                    sums[i] = 0;
+                    state[i] = beta1 * state[i] + g;
+                    w[i] = (float) (w[i] - learningRate * state[i]);
+                }
+                break;
+            case RMS_PROP:
+                for (int i = 0; i < n; i++) {
+                    double g = sums[i] * scale + l2 * w[i];
+                    sums[i] = 0;
+                    state[i] = beta2 * state[i] + (1 - beta2) * g * g;
+                    w[i] = (float) (w[i] - learningRate * g / (Math.sqrt(state[i]) + epsilon));
+                }
+                break;
+            case ADAM:
+                double c1 = 1 / (1 - Math.pow(beta1, t));
+                double c2 = 1 / (1 - Math.pow(beta2, t));
+                for (int i = 0; i < n; i++) {
+                    double g = sums[i] * scale + l2 * w[i];
+                    sums[i] = 0;
+                    double m = state[i] = beta1 * state[i] + (1 - beta1) * g;
+                    double v = state[n + i] = beta2 * state[n + i] + (1 - beta2) * g * g;
+                    w[i] = (float) (w[i] - learningRate * (m * c1) / (Math.sqrt(v * c2) + epsilon));
+                }
+                break;
+            default:
+        }
+    }
+
+    public String getOo() {
+        return oo.toString();
+    }
+
+    public OptimizerOptions getOptions() {
+        return oo;
+    }
+
+    public double getLearningRate() {
+        return learningRate;
+    }
+
+    public double getL2() {
+        return l2;
+    }
+
+    public double getBeta1() {
+        return beta1;
+    }
+
+    public double getBeta2() {
+        return beta2;
+    }
+
+    public double getEpsilon() {
+        return epsilon;
+    }
+
+    /**
+     * Converts a passed in string to an optimizer with default hyperparameters
+     * 
+     * @param s String that relates to enum value to pass in
+     * @return an optimizer of the kind named by the passed in String
+     */
+    public static Optimizer convertStringToObject(String s) {
+        return new Optimizer(OptimizerOptions.valueOf(s));
+    }
+}
@@ -0,0 +1,8 @@
+package Other.FunctionClasses.Optimizer;
+
+/**
+ * Enum to hold Optimizer names
+ */
+public enum OptimizerOptions {
+    SGD, MOMENTUM, RMS_PROP, ADAM;
+}
@@ -0,0 +1,64 @@
+package Other;
+
+/**
+ * Plain loop implementation of VectorMath, left to the JIT to vectorize
+ *
+ * @see VectorMath
+ */
+public class ScalarVectorMath implements VectorMath {
+
+    @Override
+    public double dot(double[] a, int aOff, double[] b, int bOff, int len) {
+        double ret_val = 0;
+        for (int i = 0; i < len; i++) {
+            ret_val += a[aOff + i] * b[bOff + i];
+        }
+        return ret_val;
+    }
+
+    @Override
+    public double dot(float[] a, int aOff, double[] b, int bOff, int len) {
+        double ret_val = 0;
+        for (int i = 0; i < len; i++) {
+            ret_val += a[aOff + i] * b[bOff + i];
+        }
+        return ret_val;
+    }
+
+    @Override
+    public int dot(byte[] a, int aOff, byte[] b, int bOff, int len) {
+        int ret_val = 0;
+        for (int i = 0; i < len; i++) {
+            ret_val += a[aOff + i] * b[bOff + i];
+        }
+        return ret_val;
+    }
+
+    @Override
+    public double dot(double[] values, int[] index, int from, int to, double[] x) {
+        double ret_val = 0;
+        for (int k = from; k < to; k++) {
+            ret_val += values[k] * x[index[k]];
+        }
+        return ret_val;
+    }
+
+    @Override
+    public void axpy(double a, double[] x, int xOff, double[] y, int yOff, int len) {
+        for (int i = 0; i < len; i++) {
+            y[yOff + i] += a * x[xOff + i];
+        }
+    }
+
+    @Override
+    public void axpy(double a, float[] x, int xOff, double[] y, int yOff, int len) {
+        for (int i = 0; i < len; i++) {
+            y[yOff + i] += a * x[xOff + i];
+        }
+    }
+
+    @Override
+    public String getName() {
+        return "scalar";
+    }
+}
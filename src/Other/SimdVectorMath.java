@@ -0,0 +1,135 @@
+package Other;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * VectorMath implemented with explicit SIMD lanes through the Java Vector API.
+ * Uses the widest vectors the CPU supports (for example 4 doubles with AVX2 or 8
+ * with AVX-512). Single precision ranges are loaded as floats and widened to
+ * doubles lane by lane, and 8 bit ranges are widened to 32 bit integers. Only
+ * loaded by Util when the jdk.incubator.vector module is available
+ *
+ * @see VectorMath
+ */
+public class SimdVectorMath implements VectorMath {
+    private static final VectorSpecies<Double> D = DoubleVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Float> F = VectorSpecies.of(float.class,
+            VectorShape.forBitSize(D.vectorBitSize() / 2));
+    // Bytes are widened 4x to ints, and the narrowest byte vector holds 64 bits
+    private static final VectorSpecies<Byte> B = VectorSpecies.of(byte.class,
+            VectorShape.forBitSize(Math.max(64, D.vectorBitSize() / 4)));
+    private static final VectorSpecies<Integer> I = VectorSpecies.of(int.class,
+            VectorShape.forBitSize(B.vectorBitSize() * 4));
+
+    @Override
+    public double dot(double[] a, int aOff, double[] b, int bOff, int len) {
+        DoubleVector acc = DoubleVector.zero(D);
+        int i = 0;
+        int bound = D.loopBound(len);
+        for (; i < bound; i += D.length()) {
+            DoubleVector va = DoubleVector.fromArray(D, a, aOff + i);
+            DoubleVector vb = DoubleVector.fromArray(D, b, bOff + i);
+            acc = va.fma(vb, acc);
+        }
+        double ret_val = acc.reduceLanes(VectorOperators.ADD);
+        for (; i < len; i++) {
+            ret_val += a[aOff + i] * b[bOff + i];
+        }
+        return ret_val;
+    }
+
+    @Override
+    public double dot(float[] a, int aOff, double[] b, int bOff, int len) {
+        DoubleVector acc = DoubleVector.zero(D);
+        int i = 0;
+        int bound = D.loopBound(len);
+        for (; i < bound; i += D.length()) {
+            DoubleVector va = (DoubleVector) FloatVector.fromArray(F, a, aOff + i).convertShape(VectorOperators.F2D, D,
+                    0);
+            DoubleVector vb = DoubleVector.fromArray(D, b, bOff + i);
+            acc = va.fma(vb, acc);
+        }
+        double ret_val = acc.reduceLanes(VectorOperators.ADD);
+        for (; i < len; i++) {
+            ret_val += a[aOff + i] * b[bOff + i];
+        }
+        return ret_val;
+    }
+
+    @Override
+    public int dot(byte[] a, int aOff, byte[] b, int bOff, int len) {
+        IntVector acc = IntVector.zero(I);
+        int i = 0;
+        int bound = B.loopBound(len);
+        for (; i < bound; i += B.length()) {
+            IntVector va = (IntVector) ByteVector.fromArray(B, a, aOff + i).convertShape(VectorOperators.B2I, I, 0);
+            IntVector vb = (IntVector) ByteVector.fromArray(B, b, bOff + i).convertShape(VectorOperators.B2I, I, 0);
+            acc = acc.add(va.mul(vb));
+        }
+        int ret_val = acc.reduceLanes(VectorOperators.ADD);
+        for (; i < len; i++) {
+            ret_val += a[aOff + i] * b[bOff + i];
+        }
+        return ret_val;
+    }
+
+    @Override
+    public double dot(double[] values, int[] index, int from, int to, double[] x) {
+        DoubleVector acc = DoubleVector.zero(D);
+        int k = from;
+        int bound = from + D.loopBound(to - from);
+        for (; k < bound; k += D.length()) {
+            DoubleVector vv = DoubleVector.fromArray(D, values, k);
+            DoubleVector vx = DoubleVector.fromArray(D, x, 0, index, k);
+            acc = vv.fma(vx, acc);
+        }
+        double ret_val = acc.reduceLanes(VectorOperators.ADD);
+        for (; k < to; k++) {
+            ret_val += values[k] * x[index[k]];
+        }
+        return ret_val;
+    }
+
+    @Override
+    public void axpy(double a, double[] x, int xOff, double[] y, int yOff, int len) {
+        DoubleVector va = DoubleVector.broadcast(D, a);
+        int i = 0;
+        int bound = D.loopBound(len);
+        for (; i < bound; i += D.length()) {
+            DoubleVector vx = DoubleVector.fromArray(D, x, xOff + i);
+            DoubleVector vy = DoubleVector.fromArray(D, y, yOff + i);
+            // mul then add rather than fma, so the result matches the scalar loop
+            vy.add(vx.mul(va)).intoArray(y, yOff + i);
+        }
+        for (; i < len; i++) {
+            y[yOff + i] += a * x[xOff + i];
+        }
+    }
+
+    @Override
+    public void axpy(double a, float[] x, int xOff, double[] y, int yOff, int len) {
+        DoubleVector va = DoubleVector.broadcast(D, a);
+        int i = 0;
+        int bound = D.loopBound(len);
+        for (; i < bound; i += D.length()) {
+            DoubleVector vx = (DoubleVector) FloatVector.fromArray(F, x, xOff + i).convertShape(VectorOperators.F2D, D,
+                    0);
+            DoubleVector vy = DoubleVector.fromArray(D, y, yOff + i);
+            vy.add(vx.mul(va)).intoArray(y, yOff + i);
+        }
+        for (; i < len; i++) {
+            y[yOff + i] += a * x[xOff + i];
+        }
+    }
+
+    @Override
+    public String getName() {
+        return "simd (" + D.length() + " doubles per vector)";
+    }
+}
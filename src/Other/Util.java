@@ -12,13 +12,42 @@ import java.util.Scanner;
 import java.util.stream.Stream;
 
 import Exceptions.TooFewLayersException;
+import NetworkClasses.BinaryNetworkFile;
 import NetworkClasses.Layer;
 import NetworkClasses.Network;
 import NetworkClasses.Neuron;
+import NetworkClasses.Precision;
 import Other.FunctionClasses.Activation.ActivationFunction;
 import Other.FunctionClasses.Cost.CostFunction;
 
 public class Util {
+    /**
+     * The implementation of the innermost vector loops, chosen once when this
+     * class is loaded
+     * 
+     * @see VectorMath
+     */
+    private static final VectorMath MATH = loadVectorMath();
+
+    private static VectorMath loadVectorMath() {
+        if (!"scalar".equals(System.getProperty("nn.vector"))
+                && ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) {
+            try {
+                return (VectorMath) Class.forName("Other.SimdVectorMath").getDeclaredConstructor().newInstance();
+            } catch (ReflectiveOperationException | LinkageError | RuntimeException e) {
+                // Not supported on this CPU or JVM, use the plain loops below
+            }
+        }
+        return new ScalarVectorMath();
+    }
+
+    /**
+     * @return the implementation of the vector loops in use
+     * @see VectorMath
+     */
+    public static VectorMath getVectorMath() {
+        return MATH;
+    }
 
     /**
      * Turns a 2D array into a readable String
@@ -72,12 +101,42 @@ public class Util {
      */
     public static double[] calculatedCdz(double[] a, double[] b, ActivationFunction af) {
         double[] ret_val = new double[a.length];
-        for (int i = 0; i < a.length; i++) {
-            ret_val[i] = af.getFunction().calculateDerivative(a[i]) * b[i];
-        }
+        calculatedCdz(a, b, af, ret_val);
         return ret_val;
     }
 
+    /**
+     * Same as calculatedCdz(double[], double[], ActivationFunction) but writes the
+     * result to an existing array instead of allocating one. Goes through the
+     * same whole-layer kernel as the backward pass, passing a as both the
+     * pre-activation and the activation values, so it also works for SOFTMAX
+     * 
+     * @param a   activation values of the current layer
+     * @param b   the partial derivative of the cost with respect to the current
+     *            layer activations
+     * @param af  the activation function used by the layer
+     * @param out the array to write the result to, at least as long as a
+     */
+    public static void calculatedCdz(double[] a, double[] b, ActivationFunction af, double[] out) {
+        af.calculateDerivative(a, a, b, out);
+    }
+
+    /**
+     * Same as calculatedCdz(double[], double[], ActivationFunction, double[]) but
+     * evaluates the derivative at the pre-activation values cached by the forward
+     * pass, using the activation values where that is cheaper
+     * 
+     * @param z   pre-activation values of the current layer
+     * @param a   activation values of the current layer
+     * @param b   the partial derivative of the cost with respect to the current
+     *            layer activations
+     * @param af  the activation function that produced a from z
+     * @param out the array to write the result to, at least as long as z
+     */
+    public static void calculatedCdz(double[] z, double[] a, double[] b, ActivationFunction af, double[] out) {
+        af.calculateDerivative(z, a, b, out);
+    }
+
     /**
      * Calculates the partial derivative of the cost function with respect to the
      * activations of the previous layer
@@ -97,6 +156,56 @@ public class Util {
         return ret_val;
     }
 
+    /**
+     * Calculates the partial derivative of the cost function with respect to the
+     * activations of the previous layer, reading the weight matrix of the previous
+     * layer in place
+     * 
+     * @param w    the row-major weight matrix of the previous layer
+     * @param cols the amount of columns in the weight matrix (the size of b)
+     * @param b    the dCdz calculation for the current layer as returned by the
+     *             "calculatedCdZ" method in the Util class
+     * @return the partial derivative of the cost function with respect to the
+     *         activations of the previous layer
+     */
+    public static double[] calculatedCda(double[] w, int cols, double[] b) {
+        double[] ret_val = new double[w.length / cols];
+        calculatedCda(w, cols, b, ret_val);
+        return ret_val;
+    }
+
+    /**
+     * Same as calculatedCda(double[], int, double[]) but writes the result to an
+     * existing array instead of allocating one
+     * 
+     * @param w    the row-major weight matrix of the previous layer
+     * @param cols the amount of columns in the weight matrix (the size of b)
+     * @param b    the dCdz calculation for the current layer
+     * @param out  the array to write the result to, one element per row of w
+     */
+    public static void calculatedCda(double[] w, int cols, double[] b, double[] out) {
+        int rows = w.length / cols;
+        for (int i = 0; i < rows; i++) {
+            out[i] = dotProduct(w, i * cols, b, 0, cols);
+        }
+    }
+
+    /**
+     * Same as calculatedCda(double[], int, double[], double[]) for a single
+     * precision weight matrix. The sums are accumulated in double precision
+     * 
+     * @param w    the row-major weight matrix of the previous layer
+     * @param cols the amount of columns in the weight matrix (the size of b)
+     * @param b    the dCdz calculation for the current layer
+     * @param out  the array to write the result to, one element per row of w
+     */
+    public static void calculatedCda(float[] w, int cols, double[] b, double[] out) {
+        int rows = w.length / cols;
+        for (int i = 0; i < rows; i++) {
+            out[i] = dotProduct(w, i * cols, b, 0, cols);
+        }
+    }
+
     /**
      * Calculates the outer product of two 1D vectors
      * 
@@ -115,6 +224,30 @@ public class Util {
         return ret_val;
     }
 
+    /**
+     * Adds the outer product of two 1D vectors to a flat row-major matrix in place,
+     * with a row for every element of a: acc[i * b.length + j] += a[i] * b[j]
+     * 
+     * @param acc the matrix to add to
+     * @param a   vector a
+     * @param b   vector b
+     */
+    public static void addOuterProduct(double[] acc, double[] a, double[] b) {
+        for (int i = 0; i < a.length; i++) {
+            MATH.axpy(a[i], b, 0, acc, i * b.length, b.length);
+        }
+    }
+
+    /**
+     * Adds vector b to vector a in place
+     * 
+     * @param a the vector to add to
+     * @param b the vector to add
+     */
+    public static void addVector(double[] a, double[] b) {
+        MATH.axpy(1, b, 0, a, 0, b.length);
+    }
+
     /**
      * Calculates the dot product of two 1D vectors
      * 
@@ -124,11 +257,268 @@ public class Util {
      * @see https://en.wikipedia.org/wiki/Dot_product
      */
     public static double dotProduct(double[] a, double[] b) {
-        double ret_val = 0;
-        for (int i = 0; i < a.length; i++) {
-            ret_val += a[i] * b[i];
+        return MATH.dot(a, 0, b, 0, a.length);
+    }
+
+    /**
+     * Calculates the dot product of two ranges of equal length within two arrays
+     * 
+     * @param a    vector a
+     * @param aOff the index in a to start at
+     * @param b    vector b
+     * @param bOff the index in b to start at
+     * @param len  the amount of elements to multiply
+     * @return scalar product
+     */
+    public static double dotProduct(double[] a, int aOff, double[] b, int bOff, int len) {
+        return MATH.dot(a, aOff, b, bOff, len);
+    }
+
+    /**
+     * Calculates the dot product of a range of single precision values and a range
+     * of double precision values, accumulating in double precision
+     * 
+     * @param a    vector a
+     * @param aOff the index in a to start at
+     * @param b    vector b
+     * @param bOff the index in b to start at
+     * @param len  the amount of elements to multiply
+     * @return scalar product
+     */
+    public static double dotProduct(float[] a, int aOff, double[] b, int bOff, int len) {
+        return MATH.dot(a, aOff, b, bOff, len);
+    }
+
+    /**
+     * Calculates the dot product of two ranges of 8 bit integers, accumulating in
+     * 32 bit integers
+     * 
+     * @param a    vector a
+     * @param aOff the index in a to start at
+     * @param b    vector b
+     * @param bOff the index in b to start at
+     * @param len  the amount of elements to multiply
+     * @return scalar product
+     */
+    public static int dotProduct(byte[] a, int aOff, byte[] b, int bOff, int len) {
+        return MATH.dot(a, aOff, b, bOff, len);
+    }
+
+    /**
+     * Computes the activations of the next layer through a weight matrix stored
+     * in compressed sparse row (CSR) form: out[j] = f(sum(values[k] * in[index[k]])
+     * + bias[j]) for k from rowStart[j] up to rowStart[j + 1]. Row j of the sparse
+     * matrix holds the non-zero weights going into neuron j of the next layer, so
+     * only those weights are read
+     * 
+     * @param in       the activations of the current layer
+     * @param rowStart where each row starts in values and index, cols + 1 long
+     * @param index    the neuron of the current layer every value comes from
+     * @param values   the non-zero weights
+     * @param cols     the amount of neurons in the next layer
+     * @param bias     the biases of the next layer
+     * @param af       the activation function to apply
+     * @param out      the array the activations of the next layer are written to
+     */
+    public static void forwardLayerSparse(double[] in, int[] rowStart, int[] index, double[] values, int cols,
+            double[] bias, ActivationFunction af, double[] out) {
+        for (int j = 0; j < cols; j++) {
+            out[j] = MATH.dot(values, index, rowStart[j], rowStart[j + 1], in) + bias[j];
+        }
+        af.calculateOriginal(out, out, 0, cols);
+    }
+
+    /**
+     * Computes the activations of the next layer from the activations of the
+     * current one: out[j] = f(sum(in[i] * w[i][j]) + bias[j]). The weight matrix is
+     * walked row by row so that it is read front to back exactly once
+     * 
+     * @param in     the activations of the current layer
+     * @param w      the row-major weight matrix of the current layer
+     * @param rows   the amount of neurons in the current layer
+     * @param cols   the amount of neurons in the next layer
+     * @param bias   the biases of the next layer
+     * @param af     the activation function to apply
+     * @param out    the array the activations of the next layer are written to
+     */
+    public static void forwardLayer(double[] in, double[] w, int rows, int cols, double[] bias,
+            ActivationFunction af, double[] out) {
+        forwardLayer(in, w, rows, cols, bias, af, out, out);
+    }
+
+    /**
+     * Same as forwardLayer(double[], double[], int, int, double[],
+     * ActivationFunction, double[]) but also keeps the pre-activation values of
+     * the next layer, z[j] = sum(in[i] * w[i][j]) + bias[j], for backpropagation
+     * 
+     * @param in     the activations of the current layer
+     * @param w      the row-major weight matrix of the current layer
+     * @param rows   the amount of neurons in the current layer
+     * @param cols   the amount of neurons in the next layer
+     * @param bias   the biases of the next layer
+     * @param af     the activation function to apply
+     * @param z      the array the pre-activation values of the next layer are
+     *               written to. May be the same array as out
+     * @param out    the array the activations of the next layer are written to
+     */
+    public static void forwardLayer(double[] in, double[] w, int rows, int cols, double[] bias,
+            ActivationFunction af, double[] z, double[] out) {
+        for (int j = 0; j < cols; j++) {
+            z[j] = 0;
+        }
+        for (int i = 0; i < rows; i++) {
+            MATH.axpy(in[i], w, i * cols, z, 0, cols);
+        }
+        for (int j = 0; j < cols; j++) {
+            z[j] += bias[j];
+        }
+        af.calculateOriginal(z, out, 0, cols);
+    }
+
+    /**
+     * Same as forwardLayer for a single precision weight matrix. The sums are
+     * accumulated in double precision
+     * 
+     * @param in     the activations of the current layer
+     * @param w      the row-major weight matrix of the current layer
+     * @param rows   the amount of neurons in the current layer
+     * @param cols   the amount of neurons in the next layer
+     * @param bias   the biases of the next layer
+     * @param af     the activation function to apply
+     * @param out    the array the activations of the next layer are written to
+     */
+    public static void forwardLayer(double[] in, float[] w, int rows, int cols, double[] bias,
+            ActivationFunction af, double[] out) {
+        forwardLayer(in, w, rows, cols, bias, af, out, out);
+    }
+
+    /**
+     * Same as forwardLayer(double[], float[], int, int, double[],
+     * ActivationFunction, double[]) but also keeps the pre-activation values of
+     * the next layer, z[j] = sum(in[i] * w[i][j]) + bias[j], for backpropagation
+     * 
+     * @param in     the activations of the current layer
+     * @param w      the row-major weight matrix of the current layer
+     * @param rows   the amount of neurons in the current layer
+     * @param cols   the amount of neurons in the next layer
+     * @param bias   the biases of the next layer
+     * @param af     the activation function to apply
+     * @param z      the array the pre-activation values of the next layer are
+     *               written to. May be the same array as out
+     * @param out    the array the activations of the next layer are written to
+     */
+    public static void forwardLayer(double[] in, float[] w, int rows, int cols, double[] bias,
+            ActivationFunction af, double[] z, double[] out) {
+        for (int j = 0; j < cols; j++) {
+            z[j] = 0;
+        }
+        for (int i = 0; i < rows; i++) {
+            MATH.axpy(in[i], w, i * cols, z, 0, cols);
+        }
+        for (int j = 0; j < cols; j++) {
+            z[j] += bias[j];
+        }
+        af.calculateOriginal(z, out, 0, cols);
+    }
+
+    /**
+     * The amount of rows of the weight matrix (and batch rows) handled per block
+     * by forwardBatch. Chosen so a block of weights stays in the L1/L2 cache while
+     * it is reused across a block of samples
+     */
+    private static final int ROW_BLOCK = 32;
+    /**
+     * The amount of columns of the weight matrix handled per block by forwardBatch
+     */
+    private static final int COL_BLOCK = 256;
+
+    /**
+     * The batched version of forwardLayer. Computes the activations of the next
+     * layer for a whole batch of samples as a single matrix-matrix product, tiled
+     * so that each block of weights is reused for many samples while it is still
+     * in cache. Every output is summed in the same order as forwardLayer, so both
+     * methods give identical results
+     * 
+     * @param in        the activations of the current layer, one row of "rows"
+     *                  values per sample
+     * @param batchSize the amount of samples in the batch
+     * @param w         the row-major weight matrix of the current layer
+     * @param rows      the amount of neurons in the current layer
+     * @param cols      the amount of neurons in the next layer
+     * @param bias      the biases of the next layer
+     * @param af        the activation function to apply
+     * @param out       the array the activations of the next layer are written
+     *                  to, one row of "cols" values per sample
+     */
+    public static void forwardBatch(double[] in, int batchSize, double[] w, int rows, int cols, double[] bias,
+            ActivationFunction af, double[] out) {
+        Arrays.fill(out, 0, batchSize * cols, 0);
+        for (int j0 = 0; j0 < cols; j0 += COL_BLOCK) {
+            int j1 = Math.min(j0 + COL_BLOCK, cols);
+            for (int b0 = 0; b0 < batchSize; b0 += ROW_BLOCK) {
+                int b1 = Math.min(b0 + ROW_BLOCK, batchSize);
+                for (int i0 = 0; i0 < rows; i0 += ROW_BLOCK) {
+                    int i1 = Math.min(i0 + ROW_BLOCK, rows);
+                    for (int b = b0; b < b1; b++) {
+                        int inRow = b * rows;
+                        int outRow = b * cols;
+                        for (int i = i0; i < i1; i++) {
+                            MATH.axpy(in[inRow + i], w, i * cols + j0, out, outRow + j0, j1 - j0);
+                        }
+                    }
+                }
+            }
+        }
+        for (int b = 0; b < batchSize; b++) {
+            int outRow = b * cols;
+            for (int j = 0; j < cols; j++) {
+                out[outRow + j] += bias[j];
+            }
+            af.calculateOriginal(out, out, outRow, outRow + cols);
+        }
+    }
+
+    /**
+     * Same as forwardBatch for a single precision weight matrix. The sums are
+     * accumulated in double precision
+     * 
+     * @param in        the activations of the current layer, one row of "rows"
+     *                  values per sample
+     * @param batchSize the amount of samples in the batch
+     * @param w         the row-major weight matrix of the current layer
+     * @param rows      the amount of neurons in the current layer
+     * @param cols      the amount of neurons in the next layer
+     * @param bias      the biases of the next layer
+     * @param af        the activation function to apply
+     * @param out       the array the activations of the next layer are written
+     *                  to, one row of "cols" values per sample
+     */
+    public static void forwardBatch(double[] in, int batchSize, float[] w, int rows, int cols, double[] bias,
+            ActivationFunction af, double[] out) {
+        Arrays.fill(out, 0, batchSize * cols, 0);
+        for (int j0 = 0; j0 < cols; j0 += COL_BLOCK) {
+            int j1 = Math.min(j0 + COL_BLOCK, cols);
+            for (int b0 = 0; b0 < batchSize; b0 += ROW_BLOCK) {
+                int b1 = Math.min(b0 + ROW_BLOCK, batchSize);
+                for (int i0 = 0; i0 < rows; i0 += ROW_BLOCK) {
+                    int i1 = Math.min(i0 + ROW_BLOCK, rows);
+                    for (int b = b0; b < b1; b++) {
+                        int inRow = b * rows;
+                        int outRow = b * cols;
+                        for (int i = i0; i < i1; i++) {
+                            MATH.axpy(in[inRow + i], w, i * cols + j0, out, outRow + j0, j1 - j0);
+                        }
+                    }
+                }
+            }
+        }
+        for (int b = 0; b < batchSize; b++) {
+            int outRow = b * cols;
+            for (int j = 0; j < cols; j++) {
+                out[outRow + j] += bias[j];
+            }
+            af.calculateOriginal(out, out, outRow, outRow + cols);
         }
-        return ret_val;
     }
 
     /**
@@ -167,6 +557,16 @@ public class Util {
                 Integer nodeNum = paramReader.nextInt();
                 Integer nextNodeNum = paramReader.nextInt();
                 String activationFunctionString = paramReader.next();
+                Precision precision = Precision.DOUBLE;
+                boolean pruned = false;
+                while (paramReader.hasNext()) {
+                    String option = paramReader.next();
+                    if (option.equals("PRUNED")) {
+                        pruned = true;
+                    } else {
+                        precision = Precision.valueOf(option);
+                    }
+                }
                 Queue<Neuron> neuronQueue = new LinkedList<>();
                 for (int j = 0; j < nodeNum; j++) {
                     Neuron n = new Neuron(false);
@@ -181,8 +581,13 @@ public class Util {
                     neuronQueue.add(n);
                     weightBiasReader.close();
                 }
-                layerQueue.add(new Layer(neuronQueue,
-                        ActivationFunction.convertStringToObject(activationFunctionString), nextNodeNum));
+                Layer l = new Layer(neuronQueue, ActivationFunction.convertStringToObject(activationFunctionString),
+                        nextNodeNum, precision);
+                if (pruned) {
+                    // Pruned weights are saved as zeros
+                    l.pruneZeros();
+                }
+                layerQueue.add(l);
                 paramReader.close();
             }
             b.close();
@@ -196,4 +601,22 @@ public class Util {
         }
         return null;
     }
+
+    /**
+     * Reads a binary file written by Network.saveToBinaryFile to reconstruct a
+     * pre-trained neural network. The file is memory-mapped and the weights are
+     * copied into the network without any parsing
+     * 
+     * @param f the file to read from
+     * @return a trained neural network
+     * @see BinaryNetworkFile
+     */
+    public static Network readFromBinaryFile(File f) {
+        try {
+            return BinaryNetworkFile.read(f);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        return null;
+    }
 }
\ No newline at end of file
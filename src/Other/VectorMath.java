@@ -0,0 +1,98 @@
+package Other;
+
+/**
+ * The innermost loops of the network: dot products and "axpy" (y += a * x) over
+ * ranges of arrays. Util routes its vector math through one implementation of
+ * this interface, chosen once when Util is loaded. ScalarVectorMath uses plain
+ * loops and is always available. SimdVectorMath uses the incubating Java Vector
+ * API and is used when the jdk.incubator.vector module is present (run with
+ * --add-modules jdk.incubator.vector). Setting the system property "nn.vector"
+ * to "scalar" forces the plain loops
+ *
+ * @see Util
+ */
+public interface VectorMath {
+    /**
+     * Calculates the dot product of two ranges of equal length
+     *
+     * @param a    vector a
+     * @param aOff the index in a to start at
+     * @param b    vector b
+     * @param bOff the index in b to start at
+     * @param len  the amount of elements to multiply
+     * @return scalar product
+     */
+    public double dot(double[] a, int aOff, double[] b, int bOff, int len);
+
+    /**
+     * Calculates the dot product of a single precision range and a double
+     * precision range, accumulating in double precision
+     *
+     * @param a    vector a
+     * @param aOff the index in a to start at
+     * @param b    vector b
+     * @param bOff the index in b to start at
+     * @param len  the amount of elements to multiply
+     * @return scalar product
+     */
+    public double dot(float[] a, int aOff, double[] b, int bOff, int len);
+
+    /**
+     * Calculates the dot product of two ranges of 8 bit integers, accumulating in
+     * 32 bit integers. Integer sums are exact, so every implementation gives
+     * exactly the same result
+     *
+     * @param a    vector a
+     * @param aOff the index in a to start at
+     * @param b    vector b
+     * @param bOff the index in b to start at
+     * @param len  the amount of elements to multiply
+     * @return scalar product
+     */
+    public int dot(byte[] a, int aOff, byte[] b, int bOff, int len);
+
+    /**
+     * Calculates the dot product of a sparse vector and a dense one: the sum of
+     * values[k] * x[index[k]] for every k from "from" up to "to"
+     *
+     * @param values the non-zero values of the sparse vector
+     * @param index  the position of every value in the dense vector
+     * @param from   the first k to include
+     * @param to     one past the last k to include
+     * @param x      the dense vector
+     * @return scalar product
+     */
+    public double dot(double[] values, int[] index, int from, int to, double[] x);
+
+    /**
+     * Adds a multiple of one range to another: y[yOff + i] += a * x[xOff + i]. The
+     * elements are independent of each other, so every implementation gives
+     * exactly the same result
+     *
+     * @param a    the multiple of x to add
+     * @param x    the range to add
+     * @param xOff the index in x to start at
+     * @param y    the range to add to
+     * @param yOff the index in y to start at
+     * @param len  the amount of elements
+     */
+    public void axpy(double a, double[] x, int xOff, double[] y, int yOff, int len);
+
+    /**
+     * Same as axpy(double, double[], int, double[], int, int) for a single
+     * precision range x
+     *
+     * @param a    the multiple of x to add
+     * @param x    the range to add
+     * @param xOff the index in x to start at
+     * @param y    the range to add to
+     * @param yOff the index in y to start at
+     * @param len  the amount of elements
+     */
+    public void axpy(double a, float[] x, int xOff, double[] y, int yOff, int len);
+
+    /**
+     * @return a short name for this implementation
+     */
+    public String getName();
+}
@@ -0,0 +1,315 @@
+package ServerClasses;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Method;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import NetworkClasses.CompiledNetwork;
+import NetworkClasses.Network;
+import Other.Constants;
+import Other.Util;
+
+/**
+ * Serves predictions of a saved network over HTTP on the loopback interface.
+ * The newest network file (".txt" or ".jnnb") in a directory is loaded and
+ * compiled, and the directory is watched so that a newly saved network replaces
+ * the served one without a restart. Requests that are running while a network
+ * is swapped finish on the network they started with. Endpoints:
+ *
+ * <pre>
+ * POST /predict  one sample per line, values separated by commas or spaces.
+ *                Answers with one line of outputs per sample
+ * GET  /stats    request count, throughput and latency percentiles
+ * GET  /health   "ok" and the file of the served network
+ * </pre>
+ *
+ * Every request runs on its own virtual thread when the runtime supports them
+ * and on a cached thread pool otherwise
+ */
+public class InferenceServer implements AutoCloseable {
+    private static final long RELOAD_DELAY_MILLIS = 200;
+    private static final int MAX_BODY_BYTES = 16 << 20;
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final File directory;
+    private final WatchService watcher;
+    private final Thread watcherThread;
+    private final AtomicReference<Model> model = new AtomicReference<>();
+    private final LatencyRecorder latencies = new LatencyRecorder(4096);
+    private final AtomicLong reloads = new AtomicLong();
+
+    /**
+     * A compiled network and the file it was read from, swapped as one
+     */
+    private static final class Model {
+        private final CompiledNetwork network;
+        private final File file;
+        private final long lastModified;
+
+        private Model(CompiledNetwork network, File file, long lastModified) {
+            this.network = network;
+            this.file = file;
+            this.lastModified = lastModified;
+        }
+    }
+
+    /**
+     * Loads the newest network in "directory" and starts serving it
+     * 
+     * @param port      the port to listen on, 0 for any free port
+     * @param directory the directory holding the saved networks
+     * @throws IOException if the server could not be started or the directory
+     *                     holds no readable network
+     */
+    public InferenceServer(int port, File directory) throws IOException {
+        this.directory = directory;
+        if (!reload()) {
+            throw new IOException("No readable network in " + directory);
+        }
+        watcher = FileSystems.getDefault().newWatchService();
+        directory.toPath().register(watcher, StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_MODIFY);
+        watcherThread = new Thread(this::watch, "network-watcher");
+        watcherThread.setDaemon(true);
+        watcherThread.start();
+
+        executor = newExecutor();
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        server.setExecutor(executor);
+        server.createContext("/predict", this::predict);
+        server.createContext("/stats", this::stats);
+        server.createContext("/health", this::health);
+        server.start();
+    }
+
+    /**
+     * @return the port the server is listening on
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * @return the network currently being served
+     */
+    public CompiledNetwork getNetwork() {
+        return model.get().network;
+    }
+
+    /**
+     * Reads the newest network file in the directory and serves it if it is not
+     * already being served. The served network is kept if the file can not be
+     * read, e.g. because it is still being written or was cut short
+     * 
+     * @return true if a network is being served afterwards
+     */
+    public boolean reload() {
+        File newest = newestNetworkFile();
+        Model current = model.get();
+        if (newest == null) {
+            return current != null;
+        }
+        long lastModified = newest.lastModified();
+        if (current != null && current.file.equals(newest) && current.lastModified == lastModified) {
+            return true;
+        }
+        CompiledNetwork compiled;
+        try {
+            Network n = newest.getName().endsWith(".jnnb") ? Util.readFromBinaryFile(newest)
+                    : Util.readFromFile(newest);
+            if (n == null) {
+                return current != null;
+            }
+            compiled = n.compile();
+        } catch (RuntimeException e) {
+            // The text reader throws unchecked exceptions on truncated files
+            System.err.println("Could not read " + newest + ": " + e);
+            return current != null;
+        }
+        model.set(new Model(compiled, newest, lastModified));
+        reloads.incrementAndGet();
+        return true;
+    }
+
+    private File newestNetworkFile() {
+        File[] files = directory.listFiles(
+                f -> f.isFile() && (f.getName().endsWith(".txt") || f.getName().endsWith(".jnnb")));
+        File ret_val = null;
+        if (files != null) {
+            for (File f : files) {
+                if (ret_val == null || f.lastModified() > ret_val.lastModified()) {
+                    ret_val = f;
+                }
+            }
+        }
+        return ret_val;
+    }
+
+    /**
+     * Waits for changes to the directory. Saving a network usually produces
+     * several events, so a reload only happens once the directory has been quiet
+     * for RELOAD_DELAY_MILLIS
+     */
+    private void watch() {
+        try {
+            while (true) {
+                WatchKey key = watcher.take();
+                do {
+                    key.pollEvents();
+                    key.reset();
+                } while ((key = watcher.poll(RELOAD_DELAY_MILLIS, TimeUnit.MILLISECONDS)) != null);
+                reload();
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // Server closed
+        }
+    }
+
+    private void predict(HttpExchange exchange) throws IOException {
+        long start = System.nanoTime();
+        try {
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                respond(exchange, 405, "Use POST\n");
+                return;
+            }
+            CompiledNetwork n = model.get().network;
+            String body;
+            try (InputStream in = exchange.getRequestBody()) {
+                byte[] bytes = in.readNBytes(MAX_BODY_BYTES + 1);
+                if (bytes.length > MAX_BODY_BYTES) {
+                    respond(exchange, 413, "Request body too large\n");
+                    return;
+                }
+                body = new String(bytes, StandardCharsets.UTF_8);
+            }
+            String[] lines = body.trim().split("\\R");
+            int inputSize = n.getInputSize();
+            int outputSize = n.getOutputSize();
+            double[] inputs = new double[lines.length * inputSize];
+            int samples = 0;
+            for (String line : lines) {
+                String trimmed = line.trim();
+                if (trimmed.isEmpty()) {
+                    continue;
+                }
+                String[] values = trimmed.split("[,\\s]+");
+                if (values.length != inputSize) {
+                    respond(exchange, 400, "Line " + (samples + 1) + " has " + values.length
+                            + " values, the network expects " + inputSize + "\n");
+                    return;
+                }
+                for (int i = 0; i < inputSize; i++) {
+                    inputs[samples * inputSize + i] = Double.parseDouble(values[i]);
+                }
+                samples++;
+            }
+            if (samples == 0) {
+                respond(exchange, 400, "No samples\n");
+                return;
+            }
+            double[] outputs = n.predictBatch(inputs, samples);
+            StringBuilder sb = new StringBuilder(samples * outputSize * 12);
+            for (int s = 0; s < samples; s++) {
+                for (int i = 0; i < outputSize; i++) {
+                    if (i > 0) {
+                        sb.append(',');
+                    }
+                    sb.append(outputs[s * outputSize + i]);
+                }
+                sb.append('\n');
+            }
+            respond(exchange, 200, sb.toString());
+        } catch (NumberFormatException e) {
+            respond(exchange, 400, "Not a number: " + e.getMessage() + "\n");
+        } finally {
+            latencies.record(System.nanoTime() - start);
+        }
+    }
+
+    private void stats(HttpExchange exchange) throws IOException {
+        respond(exchange, 200, latencies.report() + "reloads " + reloads.get() + "\n");
+    }
+
+    private void health(HttpExchange exchange) throws IOException {
+        respond(exchange, 200, "ok " + model.get().file.getName() + "\n");
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    /**
+     * Uses a virtual thread per request when the runtime has virtual threads
+     * (Java 21 and later). Looked up reflectively so that the code still compiles
+     * and runs on older runtimes, which get a cached pool of daemon threads
+     * 
+     * @return the executor to run requests on
+     */
+    private static ExecutorService newExecutor() {
+        try {
+            Method m = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) m.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool(r -> {
+                Thread t = new Thread(r, "inference");
+                t.setDaemon(true);
+                return t;
+            });
+        }
+    }
+
+    /**
+     * Stops the server, letting running requests finish for up to a second
+     */
+    @Override
+    public void close() {
+        server.stop(1);
+        executor.shutdown();
+        try {
+            watcher.close();
+            watcherThread.interrupt();
+            watcherThread.join();
+            executor.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (IOException | InterruptedException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Starts a server from the command line
+     * 
+     * @param args the port (default 8080) and the directory holding the saved
+     *             networks (default Constants.savedNetworksDirectory)
+     */
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 8080;
+        File directory = args.length > 1 ? new File(args[1]) : Constants.savedNetworksDirectory;
+        InferenceServer s = new InferenceServer(port, directory);
+        Runtime.getRuntime().addShutdownHook(new Thread(s::close));
+        System.out.println("Serving " + s.model.get().file + " on http://localhost:" + s.getPort());
+    }
+}
@@ -0,0 +1,80 @@
+package ServerClasses;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Records the latencies of the most recent requests in a fixed size ring so
+ * that percentiles and throughput can be reported at any time. Recording is
+ * lock-free and never allocates; reading a snapshot copies and sorts the ring
+ */
+public class LatencyRecorder {
+    private final AtomicLongArray latencies;
+    private final AtomicLongArray finishTimes;
+    private final AtomicLong count = new AtomicLong();
+    private final long startNanos = System.nanoTime();
+
+    /**
+     * @param capacity the amount of most recent requests to keep
+     */
+    public LatencyRecorder(int capacity) {
+        latencies = new AtomicLongArray(capacity);
+        finishTimes = new AtomicLongArray(capacity);
+    }
+
+    /**
+     * Records a finished request
+     * 
+     * @param nanos the time the request took
+     */
+    public void record(long nanos) {
+        long n = count.getAndIncrement();
+        int slot = (int) (n % latencies.length());
+        latencies.set(slot, nanos);
+        finishTimes.set(slot, System.nanoTime());
+    }
+
+    /**
+     * @return the amount of requests recorded since this recorder was created
+     */
+    public long getCount() {
+        return count.get();
+    }
+
+    /**
+     * Summarizes the most recent requests
+     * 
+     * @return p50, p90, p99 and maximum latency in microseconds, the throughput
+     *         of the recent requests in requests per second and the total count
+     *         and throughput since the recorder was created, as text
+     */
+    public String report() {
+        long total = count.get();
+        int n = (int) Math.min(total, latencies.length());
+        long[] sorted = new long[n];
+        long oldest = Long.MAX_VALUE;
+        long newest = Long.MIN_VALUE;
+        for (int i = 0; i < n; i++) {
+            sorted[i] = latencies.get(i);
+            long t = finishTimes.get(i);
+            oldest = Math.min(oldest, t);
+            newest = Math.max(newest, t);
+        }
+        Arrays.sort(sorted);
+        double recent = n > 1 && newest > oldest ? (n - 1) * 1e9 / (newest - oldest) : 0;
+        double overall = total * 1e9 / Math.max(1, System.nanoTime() - startNanos);
+        return String.format("requests %d%nthroughput_total %.1f/s%nthroughput_recent %.1f/s%n"
+                + "p50 %.1f us%np90 %.1f us%np99 %.1f us%nmax %.1f us%n", total, overall, recent,
+                percentile(sorted, 0.50), percentile(sorted, 0.90), percentile(sorted, 0.99),
+                n > 0 ? sorted[n - 1] / 1e3 : 0);
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(p * sorted.length) - 1;
+        return sorted[Math.max(0, index)] / 1e3;
+    }
+}
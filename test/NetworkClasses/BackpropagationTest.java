@@ -0,0 +1,133 @@
+package NetworkClasses;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import Other.FunctionClasses.Activation.ActivationOptions;
+import Other.FunctionClasses.Cost.CostOptions;
+
+/**
+ * Checks the gradients of Backpropagation.backward against central finite
+ * differences of the cost
+ */
+class BackpropagationTest {
+    private static final double STEP = 1e-6;
+    private static final double TOLERANCE = 1e-7;
+
+    @Test
+    void sigmoidQuadraticGradientMatchesFiniteDifferences() throws Exception {
+        checkGradient(new int[] { 6, 5, 3 }, new ActivationOptions[] { ActivationOptions.SIGMOID,
+                ActivationOptions.SIGMOID, ActivationOptions.SIGMOID }, CostOptions.QUADRATIC);
+    }
+
+    @Test
+    void reluLayersGradientMatchesFiniteDifferences() throws Exception {
+        checkGradient(new int[] { 6, 7, 5, 3 }, new ActivationOptions[] { ActivationOptions.LEAKY_RE_LU,
+                ActivationOptions.RE_LU, ActivationOptions.SIGMOID, ActivationOptions.SIGMOID }, CostOptions.QUADRATIC);
+    }
+
+    @Test
+    void softmaxCrossEntropyGradientMatchesFiniteDifferences() throws Exception {
+        checkGradient(new int[] { 6, 5, 4 }, new ActivationOptions[] { ActivationOptions.SIGMOID,
+                ActivationOptions.SOFTMAX, ActivationOptions.SIGMOID }, CostOptions.CROSS_ENTROPY);
+    }
+
+    @Test
+    void softmaxQuadraticGradientMatchesFiniteDifferences() throws Exception {
+        checkGradient(new int[] { 6, 5, 4 }, new ActivationOptions[] { ActivationOptions.SIGMOID,
+                ActivationOptions.SOFTMAX, ActivationOptions.SIGMOID }, CostOptions.QUADRATIC);
+    }
+
+    @Test
+    void softmaxCrossEntropyOutputGradientIsOutputMinusExpected() throws Exception {
+        Network n = new Network(new int[] { 6, 5, 4 }, new ActivationOptions[] { ActivationOptions.SIGMOID,
+                ActivationOptions.SOFTMAX, ActivationOptions.SIGMOID }, CostOptions.CROSS_ENTROPY, 3);
+        Layer[] layers = n.getLayers().toArray(new Layer[0]);
+        double[][] z = Backpropagation.scratch(layers);
+        double[][] a = Backpropagation.scratch(layers);
+        double[][] dCdz = Backpropagation.scratch(layers);
+        fillRandom(a[0], new Random(5));
+        double[] expected = { 0, 1, 0, 0 };
+        Backpropagation.forward(layers, z, a);
+        Backpropagation.backward(layers, n.getCostFunction(), z, a, expected, weightSums(layers),
+                Backpropagation.scratch(layers), Backpropagation.scratch(layers), dCdz);
+        double[] outputMinusExpected = new double[4];
+        for (int i = 0; i < 4; i++) {
+            outputMinusExpected[i] = a[2][i] - expected[i];
+        }
+        assertArrayEquals(outputMinusExpected, dCdz[2], 0);
+    }
+
+    @Test
+    void rejectsSoftmaxOnTheLastLayer() {
+        assertThrows(IllegalArgumentException.class, () -> new Network(new int[] { 3, 2 }, new ActivationOptions[] {
+                ActivationOptions.SIGMOID, ActivationOptions.SOFTMAX }, CostOptions.CROSS_ENTROPY, 1));
+    }
+
+    private static void checkGradient(int[] sizes, ActivationOptions[] afs, CostOptions co) throws Exception {
+        Network n = new Network(sizes, afs, co, 11);
+        Layer[] layers = n.getLayers().toArray(new Layer[0]);
+        double[][] z = Backpropagation.scratch(layers);
+        double[][] a = Backpropagation.scratch(layers);
+        Random r = new Random(7);
+        fillRandom(a[0], r);
+        double[] expected = new double[sizes[sizes.length - 1]];
+        expected[r.nextInt(expected.length)] = 1;
+
+        double[][] dWSums = weightSums(layers);
+        double[][] dBSums = Backpropagation.scratch(layers);
+        Backpropagation.forward(layers, z, a);
+        Backpropagation.backward(layers, n.getCostFunction(), z, a, expected, dWSums, dBSums,
+                Backpropagation.scratch(layers), Backpropagation.scratch(layers));
+
+        for (int l = 0; l < layers.length - 1; l++) {
+            double[] w = layers[l].getWeightArray();
+            for (int k = 0; k < w.length; k++) {
+                assertEquals(numericGradient(n, layers, w, k, z, a, expected), dWSums[l][k], TOLERANCE,
+                        "weight " + k + " of layer " + l);
+            }
+        }
+        for (int l = 1; l < layers.length; l++) {
+            double[] b = layers[l].getBiasArray();
+            for (int k = 0; k < b.length; k++) {
+                assertEquals(numericGradient(n, layers, b, k, z, a, expected), dBSums[l][k], TOLERANCE,
+                        "bias " + k + " of layer " + l);
+            }
+        }
+    }
+
+    private static double numericGradient(Network n, Layer[] layers, double[] params, int k, double[][] z,
+            double[][] a, double[] expected) {
+        double original = params[k];
+        params[k] = original + STEP;
+        double plus = cost(n, layers, z, a, expected);
+        params[k] = original - STEP;
+        double minus = cost(n, layers, z, a, expected);
+        params[k] = original;
+        return (plus - minus) / (2 * STEP);
+    }
+
+    private static double cost(Network n, Layer[] layers, double[][] z, double[][] a, double[] expected) {
+        Backpropagation.forward(layers, z, a);
+        return n.getCostFunction().getFunction().calculateOriginal(a[a.length - 1], expected);
+    }
+
+    private static double[][] weightSums(Layer[] layers) {
+        double[][] ret_val = new double[layers.length][];
+        for (int l = 0; l < layers.length; l++) {
+            ret_val[l] = new double[layers[l].size() * layers[l].getNextNodesNum()];
+        }
+        return ret_val;
+    }
+
+    private static void fillRandom(double[] values, Random r) {
+        for (int i = 0; i < values.length; i++) {
+            values[i] = r.nextDouble();
+        }
+    }
+}
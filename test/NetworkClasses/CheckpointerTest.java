@@ -0,0 +1,45 @@
+package NetworkClasses;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import Other.FunctionClasses.Activation.ActivationOptions;
+import Other.FunctionClasses.Cost.CostOptions;
+
+class CheckpointerTest {
+    @TempDir
+    File dir;
+
+    @Test
+    void keepsOnlyTheNewestReadableCheckpoints() throws Exception {
+        Network n = new Network(new int[] { 4, 3, 2 }, new ActivationOptions[] { ActivationOptions.SIGMOID,
+                ActivationOptions.SIGMOID, ActivationOptions.SIGMOID }, CostOptions.QUADRATIC, 1);
+        try (Checkpointer c = new Checkpointer(dir, 2)) {
+            for (int i = 0; i < 5; i++) {
+                c.checkpoint(n);
+            }
+        }
+        String[] names = dir.list();
+        assertTrue(names.length > 0 && names.length <= 2);
+        try (Checkpointer c = new Checkpointer(dir, 2)) {
+            Network read = BinaryNetworkFile.read(c.getLatest());
+            assertArrayEquals(n.getLayers().peek().getWeightsAsVector(), read.getLayers().peek().getWeightsAsVector(),
+                    0);
+        }
+    }
+
+    @Test
+    void rejectsCheckpointsAfterClose() throws Exception {
+        Network n = new Network(new int[] { 2, 2 }, new ActivationOptions[] { ActivationOptions.SIGMOID,
+                ActivationOptions.SIGMOID }, CostOptions.QUADRATIC, 1);
+        Checkpointer c = new Checkpointer(dir, 1);
+        c.close();
+        assertThrows(IllegalStateException.class, () -> c.checkpoint(n));
+    }
+}
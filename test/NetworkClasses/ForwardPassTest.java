@@ -0,0 +1,74 @@
+package NetworkClasses;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import Other.FunctionClasses.Activation.ActivationOptions;
+import Other.FunctionClasses.Cost.CostOptions;
+
+/**
+ * Checks that every way of pulsing a network gives exactly the same outputs
+ */
+class ForwardPassTest {
+    private static final int BATCH_SIZE = 5;
+
+    private static Network network(Precision p) throws Exception {
+        return new Network(new int[] { 20, 17, 9, 4 }, new ActivationOptions[] { ActivationOptions.SIGMOID,
+                ActivationOptions.LEAKY_RE_LU, ActivationOptions.SOFTMAX, ActivationOptions.SIGMOID },
+                CostOptions.CROSS_ENTROPY, p, 2);
+    }
+
+    private static double[] inputs() {
+        Random r = new Random(9);
+        double[] ret_val = new double[BATCH_SIZE * 20];
+        for (int i = 0; i < ret_val.length; i++) {
+            ret_val[i] = r.nextGaussian();
+        }
+        return ret_val;
+    }
+
+    @Test
+    void allForwardPassesAgreeExactly() throws Exception {
+        for (Precision p : Precision.values()) {
+            Network n = network(p);
+            CompiledNetwork compiled = n.compile();
+            double[] inputs = inputs();
+            double[] batch = n.predictBatch(inputs, BATCH_SIZE);
+            double[] compiledBatch = compiled.predictBatch(inputs, BATCH_SIZE);
+            for (int k = 0; k < BATCH_SIZE; k++) {
+                double[] input = Arrays.copyOfRange(inputs, k * 20, (k + 1) * 20);
+                n.pulseWithInput(input);
+                double[] expected = n.pulseWithResult();
+                assertArrayEquals(expected, compiled.predict(input), 0, p + " compiled");
+                assertArrayEquals(expected, Arrays.copyOfRange(batch, k * 4, (k + 1) * 4), 0, p + " batch");
+                assertArrayEquals(expected, Arrays.copyOfRange(compiledBatch, k * 4, (k + 1) * 4), 0,
+                        p + " compiled batch");
+            }
+        }
+    }
+
+    @Test
+    void generatedPredictorAgreesExactly() throws Exception {
+        // Without a compiler compilePredictor falls back to a CompiledNetwork, which
+        // would leave the generated code untested
+        assumeTrue(PredictorGenerator.isAvailable());
+        for (Precision p : Precision.values()) {
+            Network n = network(p);
+            // generate throws if the generated source does not compile
+            Predictor generated = PredictorGenerator.generate(n);
+            assertFalse(n.compilePredictor() instanceof CompiledNetwork, p + " fell back to a CompiledNetwork");
+            double[] inputs = inputs();
+            for (int k = 0; k < BATCH_SIZE; k++) {
+                double[] input = Arrays.copyOfRange(inputs, k * 20, (k + 1) * 20);
+                n.pulseWithInput(input);
+                assertArrayEquals(n.pulseWithResult(), generated.predict(input), 0, p + " generated");
+            }
+        }
+    }
+}
@@ -0,0 +1,227 @@
+package NetworkClasses;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.zip.CRC32;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import Other.Util;
+import Other.FunctionClasses.Activation.ActivationOptions;
+import Other.FunctionClasses.Cost.CostOptions;
+
+/**
+ * Checks that networks saved in the text and binary formats are read back
+ * exactly
+ */
+class NetworkFileTest {
+    private static final int[] SIZES = { 7, 6, 5, 3 };
+    private static final ActivationOptions[] ACTIVATIONS = { ActivationOptions.LEAKY_RE_LU, ActivationOptions.SIGMOID,
+            ActivationOptions.SOFTMAX, ActivationOptions.SIGMOID };
+
+    @TempDir
+    File dir;
+
+    @Test
+    void textFileRoundTripsDoubleNetwork() throws Exception {
+        Network n = new Network(SIZES, ACTIVATIONS, CostOptions.CROSS_ENTROPY, Precision.DOUBLE, 1);
+        File f = new File(dir, "network.txt");
+        n.saveToFile(f);
+        assertSameNetwork(n, Util.readFromFile(f));
+    }
+
+    @Test
+    void textFileRoundTripsFloatNetwork() throws Exception {
+        Network n = new Network(SIZES, ACTIVATIONS, CostOptions.QUADRATIC, Precision.FLOAT, 2);
+        File f = new File(dir, "network.txt");
+        n.saveToFile(f);
+        assertSameNetwork(n, Util.readFromFile(f));
+    }
+
+    @Test
+    void binaryFileRoundTripsDoubleNetwork() throws Exception {
+        Network n = new Network(SIZES, ACTIVATIONS, CostOptions.CROSS_ENTROPY, Precision.DOUBLE, 3);
+        File f = new File(dir, "network.bin");
+        BinaryNetworkFile.write(n, f);
+        assertSameNetwork(n, BinaryNetworkFile.read(f));
+    }
+
+    @Test
+    void binaryFileRoundTripsFloatNetwork() throws Exception {
+        Network n = new Network(SIZES, ACTIVATIONS, CostOptions.QUADRATIC, Precision.FLOAT, 4);
+        File f = new File(dir, "network.bin");
+        BinaryNetworkFile.write(n, f);
+        assertSameNetwork(n, BinaryNetworkFile.read(f));
+    }
+
+    @Test
+    void binaryFileRoundTripsPrunedNetworks() throws Exception {
+        for (Precision p : Precision.values()) {
+            Network n = new Network(SIZES, ACTIVATIONS, CostOptions.CROSS_ENTROPY, p, 5);
+            n.pruneToSparsity(0.8);
+            File f = new File(dir, "pruned-" + p + ".bin");
+            BinaryNetworkFile.write(n, f);
+            Network read = BinaryNetworkFile.read(f);
+            assertSameNetwork(n, read);
+            assertEquals(n.getSparsity(), read.getSparsity());
+            Layer[] written = n.getLayers().toArray(new Layer[0]);
+            Layer[] loaded = read.getLayers().toArray(new Layer[0]);
+            for (int l = 0; l < written.length; l++) {
+                assertEquals(written[l].countNonZeroWeights(), loaded[l].countNonZeroWeights());
+            }
+        }
+    }
+
+    @Test
+    void pruningSurvivesSavingAndFineTuning() throws Exception {
+        // 0.8 is written as sparse layers, 0.1 as dense layers with pruned weights
+        for (double sparsity : new double[] { 0.8, 0.1 }) {
+            for (Precision p : Precision.values()) {
+                Network n = new Network(SIZES, ACTIVATIONS, CostOptions.CROSS_ENTROPY, p, 10);
+                n.pruneToSparsity(sparsity);
+                File binary = new File(dir, "pruned.bin");
+                BinaryNetworkFile.write(n, binary);
+                assertSparsityKeptWhileFineTuning(n, BinaryNetworkFile.read(binary));
+                File text = new File(dir, "pruned.txt");
+                n.saveToFile(text);
+                assertSparsityKeptWhileFineTuning(n, Util.readFromFile(text));
+            }
+        }
+    }
+
+    @Test
+    void binaryFileRejectsCorruption() throws Exception {
+        Network n = new Network(SIZES, ACTIVATIONS, CostOptions.CROSS_ENTROPY, 6);
+        File f = new File(dir, "network.bin");
+        BinaryNetworkFile.write(n, f);
+        try (RandomAccessFile raf = new RandomAccessFile(f, "rw")) {
+            raf.seek(raf.length() - 3);
+            int b = raf.read();
+            raf.seek(raf.length() - 3);
+            raf.write(b ^ 0x10);
+        }
+        assertThrows(IOException.class, () -> BinaryNetworkFile.read(f));
+    }
+
+    @Test
+    void binaryFileRejectsCorruptedHeader() throws Exception {
+        Network n = new Network(SIZES, ACTIVATIONS, CostOptions.CROSS_ENTROPY, 8);
+        File f = new File(dir, "network.bin");
+        BinaryNetworkFile.write(n, f);
+        byte[] bytes = Files.readAllBytes(f.toPath());
+        // Swapping an activation function for one with an equally long name still
+        // parses, so only the checksum can catch it
+        int at = indexOf(bytes, "SIGMOID".getBytes(StandardCharsets.UTF_8));
+        System.arraycopy("SOFTMAX".getBytes(StandardCharsets.UTF_8), 0, bytes, at, 7);
+        Files.write(f.toPath(), bytes);
+        assertThrows(IOException.class, () -> BinaryNetworkFile.read(f));
+    }
+
+    @Test
+    void binaryFileReadsVersion3() throws Exception {
+        Network n = new Network(SIZES, ACTIVATIONS, CostOptions.CROSS_ENTROPY, 9);
+        File f = new File(dir, "network.bin");
+        BinaryNetworkFile.write(n, f);
+        // Rewrite the file as version 3, whose checksum only covers the data
+        ByteBuffer buf = ByteBuffer.wrap(Files.readAllBytes(f.toPath())).order(ByteOrder.LITTLE_ENDIAN);
+        buf.putInt(4, 3);
+        buf.position(8);
+        skipString(buf);
+        int layers = buf.getInt();
+        for (int i = 0; i < layers; i++) {
+            buf.position(buf.position() + 8);
+            skipString(buf);
+            skipString(buf);
+            buf.getInt();
+        }
+        int checksumPosition = buf.position();
+        CRC32 crc = new CRC32();
+        crc.update(buf.duplicate().position((checksumPosition + 8 + 7) & ~7));
+        buf.putLong(checksumPosition, crc.getValue());
+        Files.write(f.toPath(), buf.array());
+        assertSameNetwork(n, BinaryNetworkFile.read(f));
+    }
+
+    @Test
+    void binaryFileRejectsTruncation() throws Exception {
+        Network n = new Network(SIZES, ACTIVATIONS, CostOptions.CROSS_ENTROPY, 7);
+        File f = new File(dir, "network.bin");
+        BinaryNetworkFile.write(n, f);
+        try (RandomAccessFile raf = new RandomAccessFile(f, "rw")) {
+            raf.setLength(raf.length() / 2);
+        }
+        assertThrows(IOException.class, () -> BinaryNetworkFile.read(f));
+    }
+
+    private static void assertSparsityKeptWhileFineTuning(Network original, Network read) {
+        assertEquals(original.getSparsity(), read.getSparsity());
+        Random r = new Random(4);
+        double[] input = new double[SIZES[0]];
+        double[] expected = new double[SIZES[SIZES.length - 1]];
+        for (int i = 0; i < 20; i++) {
+            for (int j = 0; j < input.length; j++) {
+                input[j] = r.nextDouble();
+            }
+            Arrays.fill(expected, 0);
+            expected[r.nextInt(expected.length)] = 1;
+            read.pulseWithInput(input);
+            read.learnFrom(expected);
+            read.updateLayers();
+        }
+        assertEquals(original.getSparsity(), read.getSparsity());
+        Layer[] o = original.getLayers().toArray(new Layer[0]);
+        Layer[] t = read.getLayers().toArray(new Layer[0]);
+        for (int l = 0; l < o.length; l++) {
+            assertEquals(o[l].countNonZeroWeights(), t[l].countNonZeroWeights(), "non-zero weights of layer " + l);
+        }
+    }
+
+    private static void skipString(ByteBuffer buf) {
+        buf.position(buf.position() + 2 + buf.getShort(buf.position()));
+    }
+
+    private static int indexOf(byte[] bytes, byte[] pattern) {
+        for (int i = 0; i + pattern.length <= bytes.length; i++) {
+            int j = 0;
+            while (j < pattern.length && bytes[i + j] == pattern[j]) {
+                j++;
+            }
+            if (j == pattern.length) {
+                return i;
+            }
+        }
+        throw new AssertionError("pattern not found");
+    }
+
+    private static void assertSameNetwork(Network expected, Network actual) {
+        Layer[] e = expected.getLayers().toArray(new Layer[0]);
+        Layer[] a = actual.getLayers().toArray(new Layer[0]);
+        assertEquals(expected.getCostFunction().getCo(), actual.getCostFunction().getCo());
+        assertEquals(e.length, a.length);
+        for (int l = 0; l < e.length; l++) {
+            assertEquals(e[l].size(), a[l].size());
+            assertEquals(e[l].getNextNodesNum(), a[l].getNextNodesNum());
+            assertEquals(e[l].getPrecision(), a[l].getPrecision());
+            assertEquals(e[l].getActivationFunction().getAo(), a[l].getActivationFunction().getAo());
+            assertArrayEquals(e[l].getWeightsAsVector(), a[l].getWeightsAsVector(), 0, "weights of layer " + l);
+            assertArrayEquals(e[l].getBiasArray(), a[l].getBiasArray(), 0, "biases of layer " + l);
+        }
+        double[] input = new double[SIZES[0]];
+        for (int i = 0; i < input.length; i++) {
+            input[i] = i * 0.3 - 1;
+        }
+        assertArrayEquals(expected.compile().predict(input), actual.compile().predict(input), 0);
+    }
+}
@@ -0,0 +1,64 @@
+package NetworkClasses;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import Other.FunctionClasses.Activation.ActivationOptions;
+import Other.FunctionClasses.Cost.CostOptions;
+
+class ParallelTrainerTest {
+    private static final int[] SIZES = { 9, 7, 4 };
+
+    private static Network network() throws Exception {
+        return new Network(SIZES, new ActivationOptions[] { ActivationOptions.SIGMOID, ActivationOptions.SOFTMAX,
+                ActivationOptions.SIGMOID }, CostOptions.CROSS_ENTROPY, 5);
+    }
+
+    private static void train(Network n, int threads) {
+        Random r = new Random(3);
+        int batchSize = 37;
+        double[] inputs = new double[batchSize * SIZES[0]];
+        double[] expected = new double[batchSize * SIZES[2]];
+        try (ParallelTrainer trainer = new ParallelTrainer(n, threads)) {
+            for (int batch = 0; batch < 20; batch++) {
+                for (int i = 0; i < inputs.length; i++) {
+                    inputs[i] = r.nextDouble();
+                }
+                Arrays.fill(expected, 0);
+                for (int k = 0; k < batchSize; k++) {
+                    expected[k * SIZES[2] + r.nextInt(SIZES[2])] = 1;
+                }
+                trainer.trainBatch(inputs, expected, batchSize);
+            }
+        }
+    }
+
+    @Test
+    void trainingIsReproducibleForAFixedSeedAndThreadCount() throws Exception {
+        Network first = network();
+        Network second = network();
+        train(first, 3);
+        train(second, 3);
+        Layer[] a = first.getLayers().toArray(new Layer[0]);
+        Layer[] b = second.getLayers().toArray(new Layer[0]);
+        for (int l = 0; l < a.length; l++) {
+            assertArrayEquals(a[l].getWeightArray(), b[l].getWeightArray(), "weights of layer " + l);
+            assertArrayEquals(a[l].getBiasArray(), b[l].getBiasArray(), "biases of layer " + l);
+        }
+    }
+
+    @Test
+    void rejectsLayersResizedAfterCreation() throws Exception {
+        Network n = network();
+        try (ParallelTrainer trainer = new ParallelTrainer(n, 2)) {
+            n.getLayers().peek().setNextNodesNum(8);
+            assertThrows(IllegalStateException.class,
+                    () -> trainer.trainBatch(new double[SIZES[0]], new double[SIZES[2]], 1));
+        }
+    }
+}
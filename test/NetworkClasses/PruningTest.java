@@ -0,0 +1,82 @@
+package NetworkClasses;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+
+import Other.FunctionClasses.Activation.ActivationFunction;
+import Other.FunctionClasses.Activation.ActivationOptions;
+import Other.FunctionClasses.Cost.CostOptions;
+import Other.FunctionClasses.Optimizer.Optimizer;
+import Other.FunctionClasses.Optimizer.OptimizerOptions;
+
+class PruningTest {
+
+    private static Network network() throws Exception {
+        return new Network(new int[] { 6, 5, 3 }, new ActivationOptions[] { ActivationOptions.SIGMOID,
+                ActivationOptions.SIGMOID, ActivationOptions.SIGMOID }, CostOptions.QUADRATIC, 1);
+    }
+
+    @Test
+    void rejectsSparsityOutsideZeroToOne() throws Exception {
+        Network n = network();
+        assertThrows(IllegalArgumentException.class, () -> n.pruneToSparsity(1.5));
+        assertThrows(IllegalArgumentException.class, () -> n.pruneToSparsity(-0.1));
+        assertThrows(IllegalArgumentException.class, () -> n.pruneToSparsity(Double.NaN));
+        assertThrows(IllegalArgumentException.class, () -> n.getLayers().peek().pruneToSparsity(2));
+        assertEquals(0, n.getSparsity());
+    }
+
+    @Test
+    void prunesEverythingAtFullSparsity() throws Exception {
+        Network n = network();
+        assertEquals(6 * 5 + 5 * 3, n.pruneToSparsity(1));
+        assertEquals(1, n.getSparsity());
+    }
+
+    @Test
+    void resizingALayerClearsItsPruningMask() throws Exception {
+        Layer l = network().getLayers().peek();
+        l.pruneToSparsity(0.5);
+        l.setNextNodesNum(8);
+        assertEquals(0, l.getPrunedCount());
+        assertNull(l.getPrunedMask());
+        // The new, larger weight matrix can be pruned without running past the mask
+        l.addWeightDeltas(new double[6 * 8]);
+        l.adjustWB();
+        assertEquals(6 * 8, l.pruneToSparsity(1));
+    }
+
+    @Test
+    void prunedWeightsStayZeroWithEveryOptimizer() {
+        for (OptimizerOptions oo : OptimizerOptions.values()) {
+            for (Precision p : Precision.values()) {
+                double[] initial = { 0.5, -0.01, 0.3, 0.02, -0.4, 0.6 };
+                float[] floatInitial = new float[initial.length];
+                for (int i = 0; i < initial.length; i++) {
+                    floatInitial[i] = (float) initial[i];
+                }
+                ActivationFunction af = new ActivationFunction(ActivationOptions.SIGMOID);
+                Layer l = p == Precision.FLOAT ? new Layer(2, 3, floatInitial, new double[2], af)
+                        : new Layer(2, 3, initial.clone(), new double[2], af);
+                assertEquals(2, l.prune(0.05));
+                Optimizer o = new Optimizer(oo);
+                for (int step = 0; step < 3; step++) {
+                    l.addWeightDeltas(new double[] { 1, 1, 1, 1, 1, 1 });
+                    l.adjustWB(o);
+                }
+                double[] w = l.getWeightsAsVector();
+                for (int i = 0; i < w.length; i++) {
+                    if (Math.abs(initial[i]) < 0.05) {
+                        assertEquals(0, w[i], oo + " " + p + " weight " + i);
+                    } else {
+                        assertNotEquals(initial[i], w[i], oo + " " + p + " weight " + i);
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package Other.FunctionClasses.Optimizer;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks two updates of every optimizer against values worked out by hand. Every
+ * case starts from a weight of 2 with a gradient total of 3 over 2 examples,
+ * a learning rate of 0.1 and an L2 constant of 0.5, so the first gradient is
+ * 3 / 2 + 0.5 * 2 = 2.5
+ */
+class OptimizerTest {
+    private static final double TOLERANCE = 1e-12;
+
+    private static Optimizer optimizer(OptimizerOptions o, double beta2) {
+        return new Optimizer(o, 0.1, 0.5, 0.9, beta2, 0);
+    }
+
+    /**
+     * @return the weight after each of two updates
+     */
+    private static double[] twoSteps(Optimizer o) {
+        double[] w = { 2 };
+        double[] state = new double[o.getStateSize()];
+        double[] ret_val = new double[2];
+        for (int t = 1; t <= 2; t++) {
+            double[] sums = { 3 };
+            o.updateWeights(w, sums, 2, state, t);
+            assertEquals(0, sums[0], "the running total is cleared");
+            ret_val[t - 1] = w[0];
+        }
+        return ret_val;
+    }
+
+    @Test
+    void sgdDescendsWithL2Decay() {
+        // g2 = 1.5 + 0.5 * 1.75 = 2.375
+        assertArrayEquals(new double[] { 1.75, 1.75 - 0.1 * 2.375 }, twoSteps(optimizer(OptimizerOptions.SGD, 0)),
+                TOLERANCE);
+    }
+
+    @Test
+    void momentumAccumulatesVelocity() {
+        // v2 = 0.9 * 2.5 + 2.375 = 4.625
+        assertArrayEquals(new double[] { 1.75, 1.75 - 0.1 * 4.625 },
+                twoSteps(optimizer(OptimizerOptions.MOMENTUM, 0)), TOLERANCE);
+    }
+
+    @Test
+    void rmsPropDividesByTheRootMeanSquare() {
+        // s1 = 0.1 * 2.5^2 = 0.625
+        double w1 = 2 - 0.1 * 2.5 / Math.sqrt(0.625);
+        double g2 = 1.5 + 0.5 * w1;
+        double s2 = 0.9 * 0.625 + 0.1 * g2 * g2;
+        assertArrayEquals(new double[] { w1, w1 - 0.1 * g2 / Math.sqrt(s2) },
+                twoSteps(optimizer(OptimizerOptions.RMS_PROP, 0.9)), TOLERANCE);
+    }
+
+    @Test
+    void adamCorrectsTheBiasOfItsMoments() {
+        // Step 1: m = 0.25 and v = 0.00625, corrected to 2.5 and 6.25, so the step
+        // is exactly the learning rate. Step 2: g = 1.5 + 0.5 * 1.9 = 2.45
+        double m2 = 0.9 * 0.25 + 0.1 * 2.45;
+        double v2 = 0.999 * 0.00625 + 0.001 * 2.45 * 2.45;
+        double step2 = 0.1 * (m2 / (1 - 0.9 * 0.9)) / Math.sqrt(v2 / (1 - 0.999 * 0.999));
+        assertArrayEquals(new double[] { 1.9, 1.9 - step2 }, twoSteps(optimizer(OptimizerOptions.ADAM, 0.999)),
+                TOLERANCE);
+    }
+
+    @Test
+    void biasesAreNotRegularized() {
+        double[] b = { 2 };
+        double[] sums = { 3 };
+        optimizer(OptimizerOptions.SGD, 0).updateBiases(b, sums, 2, new double[0], 1);
+        assertEquals(2 - 0.1 * 1.5, b[0], TOLERANCE);
+    }
+
+    @Test
+    void floatWeightsMatchDoubleWeights() {
+        for (OptimizerOptions oo : OptimizerOptions.values()) {
+            Optimizer o = optimizer(oo, oo == OptimizerOptions.RMS_PROP ? 0.9 : 0.999);
+            double[] expected = twoSteps(o);
+            float[] w = { 2 };
+            double[] state = new double[o.getStateSize()];
+            for (int t = 1; t <= 2; t++) {
+                o.updateWeights(w, new double[] { 3 }, 2, state, t);
+                assertEquals(expected[t - 1], w[0], 1e-6, oo + " step " + t);
+            }
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package Other;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+import org.junit.jupiter.api.Test;
+
+import Other.FunctionClasses.Activation.ActivationFunction;
+import Other.FunctionClasses.Activation.ActivationOptions;
+
+class UtilTest {
+
+    @Test
+    void calculatedCdzMatchesTheLayerKernelForEveryActivation() {
+        double[] z = { -1.5, -0.2, 0.4, 2.0 };
+        double[] dCda = { 0.3, -0.7, 0.1, 0.5 };
+        for (ActivationOptions ao : ActivationOptions.values()) {
+            ActivationFunction af = new ActivationFunction(ao);
+            double[] a = new double[z.length];
+            af.calculateOriginal(z, a, 0, z.length);
+            double[] expected = new double[z.length];
+            af.calculateDerivative(z, a, dCda, expected);
+            assertArrayEquals(expected, Util.calculatedCdz(a, dCda, af), 1e-15, ao.toString());
+        }
+    }
+}
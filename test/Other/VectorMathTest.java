@@ -0,0 +1,115 @@
+package Other;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Compares the SIMD kernels with the plain loops on lengths and offsets that
+ * leave tails shorter than a vector
+ */
+class VectorMathTest {
+    private static final int MAX_LENGTH = 70;
+    private static final int MAX_OFFSET = 3;
+
+    private final VectorMath scalar = new ScalarVectorMath();
+    private final VectorMath simd = new SimdVectorMath();
+    private final Random r = new Random(1);
+
+    private double[] doubles(int n) {
+        double[] ret_val = new double[n];
+        for (int i = 0; i < n; i++) {
+            ret_val[i] = r.nextGaussian();
+        }
+        return ret_val;
+    }
+
+    private float[] floats(int n) {
+        float[] ret_val = new float[n];
+        for (int i = 0; i < n; i++) {
+            ret_val[i] = (float) r.nextGaussian();
+        }
+        return ret_val;
+    }
+
+    private byte[] bytes(int n) {
+        byte[] ret_val = new byte[n];
+        r.nextBytes(ret_val);
+        return ret_val;
+    }
+
+    @Test
+    void doubleDotMatchesScalar() {
+        for (int len = 0; len <= MAX_LENGTH; len++) {
+            for (int off = 0; off <= MAX_OFFSET; off++) {
+                double[] a = doubles(len + MAX_OFFSET);
+                double[] b = doubles(len + MAX_OFFSET);
+                // The sums are added up in a different order, so allow for rounding
+                assertEquals(scalar.dot(a, off, b, MAX_OFFSET - off, len), simd.dot(a, off, b, MAX_OFFSET - off, len),
+                        1e-12 * (len + 1), "length " + len + ", offset " + off);
+            }
+        }
+    }
+
+    @Test
+    void floatDotMatchesScalar() {
+        for (int len = 0; len <= MAX_LENGTH; len++) {
+            for (int off = 0; off <= MAX_OFFSET; off++) {
+                float[] a = floats(len + MAX_OFFSET);
+                double[] b = doubles(len + MAX_OFFSET);
+                assertEquals(scalar.dot(a, off, b, MAX_OFFSET - off, len), simd.dot(a, off, b, MAX_OFFSET - off, len),
+                        1e-12 * (len + 1), "length " + len + ", offset " + off);
+            }
+        }
+    }
+
+    @Test
+    void byteDotMatchesScalarExactly() {
+        for (int len = 0; len <= 4 * MAX_LENGTH; len++) {
+            for (int off = 0; off <= MAX_OFFSET; off++) {
+                byte[] a = bytes(len + MAX_OFFSET);
+                byte[] b = bytes(len + MAX_OFFSET);
+                assertEquals(scalar.dot(a, off, b, MAX_OFFSET - off, len), simd.dot(a, off, b, MAX_OFFSET - off, len),
+                        "length " + len + ", offset " + off);
+            }
+        }
+    }
+
+    @Test
+    void sparseDotMatchesScalar() {
+        double[] x = doubles(MAX_LENGTH);
+        for (int len = 0; len <= MAX_LENGTH; len++) {
+            double[] values = doubles(len + MAX_OFFSET);
+            int[] index = new int[len + MAX_OFFSET];
+            for (int k = 0; k < index.length; k++) {
+                index[k] = r.nextInt(x.length);
+            }
+            for (int from = 0; from <= MAX_OFFSET; from++) {
+                assertEquals(scalar.dot(values, index, from, from + len, x),
+                        simd.dot(values, index, from, from + len, x), 1e-12 * (len + 1), "length " + len);
+            }
+        }
+    }
+
+    @Test
+    void axpyMatchesScalarExactly() {
+        for (int len = 0; len <= MAX_LENGTH; len++) {
+            for (int off = 0; off <= MAX_OFFSET; off++) {
+                double[] x = doubles(len + MAX_OFFSET);
+                float[] fx = floats(len + MAX_OFFSET);
+                double[] y = doubles(len + MAX_OFFSET);
+                double[] expected = y.clone();
+                double[] actual = y.clone();
+                scalar.axpy(0.37, x, off, expected, MAX_OFFSET - off, len);
+                simd.axpy(0.37, x, off, actual, MAX_OFFSET - off, len);
+                assertArrayEquals(expected, actual, "length " + len + ", offset " + off);
+                scalar.axpy(-1.5, fx, off, expected, MAX_OFFSET - off, len);
+                simd.axpy(-1.5, fx, off, actual, MAX_OFFSET - off, len);
+                assertArrayEquals(expected, actual, "float x, length " + len + ", offset " + off);
+            }
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package ServerClasses;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import NetworkClasses.CompiledNetwork;
+import NetworkClasses.Network;
+import Other.FunctionClasses.Activation.ActivationOptions;
+import Other.FunctionClasses.Cost.CostOptions;
+
+class InferenceServerTest {
+    private static final ActivationOptions[] ACTIVATIONS = { ActivationOptions.SIGMOID, ActivationOptions.SIGMOID,
+            ActivationOptions.SIGMOID };
+
+    @TempDir
+    File dir;
+
+    @Test
+    void keepsServingWhenATruncatedFileIsDropped() throws Exception {
+        Network first = new Network(new int[] { 3, 4, 2 }, ACTIVATIONS, CostOptions.QUADRATIC, 1);
+        File firstFile = new File(dir, "first.txt");
+        first.saveToFile(firstFile);
+        try (InferenceServer server = new InferenceServer(0, dir)) {
+            CompiledNetwork served = server.getNetwork();
+
+            // A text file cut off in the middle, newer than the served one
+            byte[] bytes = Files.readAllBytes(firstFile.toPath());
+            File truncated = new File(dir, "truncated.txt");
+            Files.write(truncated.toPath(), Arrays.copyOf(bytes, bytes.length / 2));
+            truncated.setLastModified(firstFile.lastModified() + 2000);
+            assertTrue(server.reload());
+            assertSame(served, server.getNetwork());
+            assertEquals(200, get(server, "/health"));
+
+            // The watcher must survive the truncated file and pick up the next one
+            Network second = new Network(new int[] { 3, 5, 2 }, ACTIVATIONS, CostOptions.QUADRATIC, 2);
+            File secondFile = new File(dir, "second.txt");
+            second.saveToFile(secondFile);
+            secondFile.setLastModified(truncated.lastModified() + 2000);
+            long deadline = System.currentTimeMillis() + 10_000;
+            while (server.getNetwork() == served && System.currentTimeMillis() < deadline) {
+                Thread.sleep(50);
+            }
+            assertEquals(5, server.getNetwork().getLayerSizes()[1]);
+        }
+    }
+
+    private static int get(InferenceServer server, String path) throws Exception {
+        HttpURLConnection c = (HttpURLConnection) new URL("http://127.0.0.1:" + server.getPort() + path)
+                .openConnection();
+        try (InputStream in = c.getInputStream()) {
+            in.readAllBytes();
+        }
+        return c.getResponseCode();
+    }
+}